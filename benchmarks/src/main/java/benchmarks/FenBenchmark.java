@@ -0,0 +1,61 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FEN parsing and generation over the middlegame corpus. Each operation
+ * covers the whole corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FenBenchmark {
+    private List<ChessGame> games;
+    private List<String> fens;
+    private final ChessBoard board = new ChessBoard();
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    @Setup
+    public void setup() {
+        games = Positions.middlegames();
+        fens = new ArrayList<>();
+        for (ChessGame game : games) {
+            fens.add(Fen.toFen(game));
+        }
+    }
+
+    /* loads every position into the same board, the way a large corpus would be scanned */
+    @Benchmark
+    public void parseIntoBoard(Blackhole blackhole) {
+        for (String fen : fens) {
+            blackhole.consume(Fen.parseBoard(fen, board));
+        }
+    }
+
+    @Benchmark
+    public void parseGame(Blackhole blackhole) {
+        for (String fen : fens) {
+            blackhole.consume(Fen.parse(fen));
+        }
+    }
+
+    @Benchmark
+    public void appendFen(Blackhole blackhole) {
+        for (ChessGame game : games) {
+            buffer.setLength(0);
+            Fen.appendFen(buffer, game.getBoard(), game.getTeamTurn(), game.getPly());
+            blackhole.consume(buffer.length());
+        }
+    }
+}
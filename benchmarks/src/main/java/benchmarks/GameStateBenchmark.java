@@ -0,0 +1,86 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move making, end-of-game detection and board equality over the middlegame
+ * corpus. Each operation covers the whole corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+    private List<ChessGame> games;
+    // an independently built copy of every game, so equals can't short-circuit on identity
+    private List<ChessGame> copies;
+    // one valid move per game for the side to move
+    private List<ChessMove> moves;
+
+    @Setup
+    public void setup() {
+        games = Positions.middlegames();
+        copies = Positions.middlegames();
+        moves = new ArrayList<>();
+        for (ChessGame game : games) {
+            moves.add(game.findValidMovesForTeam(game.getTeamTurn()).iterator().next());
+        }
+    }
+
+    /* validates and plays a move, then takes it back so every invocation sees the same position */
+    @Benchmark
+    public void makeMove() throws InvalidMoveException {
+        for (int i = 0; i < games.size(); i++) {
+            ChessGame game = games.get(i);
+            game.makeMove(moves.get(i));
+            game.unmakeMove();
+        }
+    }
+
+    @Benchmark
+    public void isInCheckmate(Blackhole blackhole) {
+        for (ChessGame game : games) {
+            blackhole.consume(game.isInCheckmate(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public void isInStalemate(Blackhole blackhole) {
+        for (ChessGame game : games) {
+            blackhole.consume(game.isInStalemate(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public void evaluateStatus(Blackhole blackhole) {
+        for (ChessGame game : games) {
+            blackhole.consume(game.evaluateStatus(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public void boardEquals(Blackhole blackhole) {
+        for (int i = 0; i < games.size(); i++) {
+            ChessBoard board = games.get(i).getBoard();
+            blackhole.consume(board.equals(copies.get(i).getBoard()));
+        }
+    }
+
+    @Benchmark
+    public void boardHashCode(Blackhole blackhole) {
+        for (ChessGame game : games) {
+            blackhole.consume(game.getBoard().hashCode());
+        }
+    }
+}
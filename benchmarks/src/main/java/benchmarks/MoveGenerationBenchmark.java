@@ -0,0 +1,97 @@
+package benchmarks;
+
+import chess.BitboardMoveGenerator;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPosition;
+import chess.PieceCalculatorHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation over every piece in the middlegame corpus. Each operation
+ * covers the whole corpus, so scores are per corpus pass, not per move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenerationBenchmark {
+    private List<ChessGame> games;
+    // positions of every piece on each board, and of the side to move's pieces
+    private List<List<ChessPosition>> allPieces;
+    private List<List<ChessPosition>> sideToMovePieces;
+
+    @Setup
+    public void setup() {
+        games = Positions.middlegames();
+        allPieces = new ArrayList<>();
+        sideToMovePieces = new ArrayList<>();
+        for (ChessGame game : games) {
+            List<ChessPosition> all = new ArrayList<>();
+            List<ChessPosition> toMove = new ArrayList<>();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    var piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                    if (piece != null) {
+                        all.add(new ChessPosition(row, col));
+                        if (piece.getTeamColor() == game.getTeamTurn()) {
+                            toMove.add(new ChessPosition(row, col));
+                        }
+                    }
+                }
+            }
+            allPieces.add(all);
+            sideToMovePieces.add(toMove);
+        }
+    }
+
+    @Benchmark
+    public void calculatePieceMoves(Blackhole blackhole) {
+        for (int i = 0; i < games.size(); i++) {
+            ChessBoard board = games.get(i).getBoard();
+            for (ChessPosition position : allPieces.get(i)) {
+                blackhole.consume(PieceCalculatorHelper.calculatePieceMoves(board, position));
+            }
+        }
+    }
+
+    @Benchmark
+    public void bitboardPieceMoves(Blackhole blackhole) {
+        for (int i = 0; i < games.size(); i++) {
+            ChessBoard board = games.get(i).getBoard();
+            for (ChessPosition position : allPieces.get(i)) {
+                blackhole.consume(BitboardMoveGenerator.calculatePieceMoves(board, position));
+            }
+        }
+    }
+
+    /* repeated calls on the same positions, as the server and client make them - served from the cache */
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (int i = 0; i < games.size(); i++) {
+            ChessGame game = games.get(i);
+            for (ChessPosition position : sideToMovePieces.get(i)) {
+                blackhole.consume(game.validMoves(position));
+            }
+        }
+    }
+
+    /* first call on each position: the legal move cache is emptied before every board */
+    @Benchmark
+    public void validMovesUncached(Blackhole blackhole) {
+        for (int i = 0; i < games.size(); i++) {
+            ChessGame game = games.get(i);
+            ChessGame.getLegalMoveCache().clear();
+            for (ChessPosition position : sideToMovePieces.get(i)) {
+                blackhole.consume(game.validMoves(position));
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Perft;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line perft driver. Runs perft from a position for each depth up to
+ * the requested one and prints node counts and nodes per second.
+ * <p>
+ * Usage: PerftMain &lt;depth&gt; [threads] [fen]. With more than one thread the
+ * root moves are split across a ForkJoinPool of that size. The position
+ * defaults to the starting position.
+ */
+public class PerftMain {
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Expected: <depth> [threads] [fen]");
+            return;
+        }
+        int maxDepth = Integer.parseInt(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        String fen = args.length > 2 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length))
+                : Fen.START_POSITION;
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+        System.out.printf("perft from %s, %d thread(s)%n", fen, threads);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            ChessGame game = Fen.parse(fen);
+            long start = System.nanoTime();
+            long nodes = pool == null ? Perft.perft(game, depth) : Perft.perft(game, depth, pool);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.printf("depth %d: %,d nodes in %.3f s (%,d nodes/s)%n",
+                    depth, nodes, elapsed / 1e9, nodes * 1_000_000_000L / elapsed);
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
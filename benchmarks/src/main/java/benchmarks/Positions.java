@@ -0,0 +1,61 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A corpus of realistic middlegame positions for the benchmarks, each reached
+ * by replaying an opening from the starting position. Moves are written as
+ * start and end squares in coordinate notation ("e2e4"). The engine has no
+ * castling or en passant, so none of the lines use them.
+ */
+public class Positions {
+    private static final String[] LINES = {
+            // Giuoco Piano, quiet build-up with a bishop trade on e6
+            "e2e4 e7e5 g1f3 b8c6 f1c4 f8c5 c2c3 g8f6 d2d3 d7d6 b1d2 a7a6 h2h3 h7h6 d2f1 c8e6 c4e6 f7e6 f1g3 d8d7",
+            // Queen's Gambit Declined, black takes on c4 and expands on the queenside
+            "d2d4 d7d5 c2c4 e7e6 b1c3 g8f6 c1g5 f8e7 e2e3 b8d7 g1f3 c7c6 f1d3 d5c4 d3c4 b7b5 c4d3 a7a6 a2a4 b5b4",
+            // Sicilian Najdorf, English Attack setup
+            "e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6 b1c3 a7a6 c1e3 e7e5 d4b3 c8e6 f2f3 f8e7 d1d2 b8d7 g2g4 h7h6",
+            // King's Indian, closed centre with a kingside pawn storm
+            "d2d4 g8f6 c2c4 g7g6 b1c3 f8g7 e2e4 d7d6 g1f3 b8d7 f1e2 e7e5 d4d5 a7a5 c1g5 h7h6 g5h4 g6g5 h4g3 f6h5",
+            // Ruy Lopez Exchange, doubled c-pawns and opposite plans
+            "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5c6 d7c6 d2d3 f7f6 c1e3 c8g4 b1d2 d8d7 h2h3 g4h5 d1e2 f8d6 a2a3 g8e7",
+            // Petrov, symmetrical pins on both knights
+            "e2e4 e7e5 g1f3 g8f6 f3e5 d7d6 e5f3 f6e4 d2d3 e4f6 d3d4 d6d5 f1d3 f8d6 b1c3 c7c6 c1g5 c8g4 h2h3 g4h5"
+    };
+
+    /**
+     * @return a fresh game for every position in the corpus
+     */
+    public static List<ChessGame> middlegames() {
+        List<ChessGame> games = new ArrayList<>();
+        for (String line : LINES) {
+            games.add(replay(line));
+        }
+        return games;
+    }
+
+    public static ChessGame replay(String line) {
+        ChessGame game = new ChessGame();
+        for (String move : line.split(" ")) {
+            try {
+                game.makeMove(new ChessMove(parseSquare(move, 0), parseSquare(move, 2), null));
+            } catch (InvalidMoveException ex) {
+                throw new IllegalArgumentException("Illegal move " + move + " in line: " + line, ex);
+            }
+        }
+        return game;
+    }
+
+    private static ChessPosition parseSquare(String move, int offset) {
+        int col = move.charAt(offset) - 'a' + 1;
+        int row = move.charAt(offset + 1) - '0';
+        return new ChessPosition(row, col);
+    }
+}
@@ -5,6 +5,7 @@ import model.*;
 import ui.websocket.WebSocketFacade;
 import ui.websocket.NotificationHandler;
 import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -210,17 +211,14 @@ public class ChessClient {
         }
 
         try {
-            // try making the move - if an exception is caught, then move was invalid and was not made
+            // try the move on a copy for quick feedback; the server applies it and sends back MOVE_APPLIED
             ChessMove potentialMove = new ChessMove(new ChessPosition(startRowAndCol[0], startRowAndCol[1]),
                     new ChessPosition(endRowAndCol[0], endRowAndCol[1]), type);
-            currGame.makeMove(potentialMove);
-
-            // update game in database
-            server.updateGame(authToken, game.gameID(), currGame);
+            new ChessGame(currGame).makeMove(potentialMove);
 
             ws = new WebSocketFacade(serverUrl, notificationHandler, visitorName);
             ws.sendMessage(UserGameCommand.CommandType.MAKE_MOVE, this.authToken, game.gameID(),
-                    visitorColor, new String[] {params[1], params[2]}, currGame);
+                    visitorColor, new String[] {params[1], params[2]}, null, potentialMove);
             return String.format("Move made: %s to %s", params[1], params[2]);
         } catch (InvalidMoveException ex) {
             return ex.getMessage();
@@ -297,6 +295,49 @@ public class ChessClient {
         }
     }
 
+    /**
+     * Applies a MOVE_APPLIED message to the local game. Every move arrives this
+     * way, this client's own included, since makeMove only tries a move on a
+     * copy before sending it. A message for a ply the local game already has
+     * is ignored; if one or more moves are missing, the server is asked for a
+     * fresh LOAD_GAME instead.
+     *
+     * @return true if the local game is now at the message's ply
+     */
+    public boolean applyMove(ServerMessage notification) throws ResponseException {
+        if (game == null || notification.getPly() == null) {
+            return false;
+        }
+        ChessGame currGame = game.game();
+        int ply = notification.getPly();
+        if (currGame.getPly() + 1 == ply) {
+            try {
+                currGame.makeMove(notification.getMove());
+            } catch (InvalidMoveException ex) {
+                // our board has drifted from the server's
+                requestSync();
+                return false;
+            }
+        } else if (currGame.getPly() < ply) {
+            requestSync();
+            return false;
+        } else if (currGame.getPly() > ply) {
+            // stale message from before a snapshot we already have
+            return false;
+        }
+        if (notification.isGameOver()) {
+            game = new ModifiedGameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
+                    game.gameName(), currGame, 1);
+        }
+        return true;
+    }
+
+    private void requestSync() throws ResponseException {
+        ws = new WebSocketFacade(serverUrl, notificationHandler, visitorName);
+        ws.sendMessage(UserGameCommand.CommandType.SYNC, this.authToken, game.gameID(),
+                visitorColor, null, null);
+    }
+
     public void setGame(ModifiedGameData game) {
         this.game = game;
     }
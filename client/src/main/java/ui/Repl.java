@@ -51,6 +51,15 @@ public class Repl implements NotificationHandler {
             client.setGame(game);
             client.drawBoard(newGame, null, null);
             printPrompt();
+        } else if (notification.getServerMessageType() == ServerMessage.ServerMessageType.MOVE_APPLIED) {
+            try {
+                if (client.applyMove(notification)) {
+                    client.redraw();
+                    printPrompt();
+                }
+            } catch (ResponseException ex) {
+                System.out.println(ex.getMessage());
+            }
         } else {
             if (notification.getMessage() == null) {
                 return;
@@ -1,6 +1,7 @@
 package ui;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import com.google.gson.Gson;
 import model.*;
 
@@ -56,6 +57,18 @@ public class ServerFacade {
         this.makeRequest("PUT", path, game, null, authToken);
     }
 
+    /**
+     * Has the server validate and apply a move
+     */
+    public void makeMove(String authToken, int gameID, ChessMove move) throws ResponseException {
+        var path = "/game/move";
+        this.makeRequest("PUT", path, new MoveRequest(gameID, move), null, authToken);
+    }
+
+    /**
+     * @deprecated uploads the whole game; use makeMove, or MAKE_MOVE over the websocket, instead
+     */
+    @Deprecated
     public void updateGame(String authToken, int gameID, ChessGame game) throws ResponseException {
         var path = "/update-game";
         UpdateGameRequest req = new UpdateGameRequest(gameID, game);
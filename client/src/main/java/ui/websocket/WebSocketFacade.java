@@ -15,6 +15,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 
 public class WebSocketFacade extends Endpoint {
+    private static final Gson GSON = new Gson();
+
     Session session;
     NotificationHandler notificationHandler;
     String visitorName = "";
@@ -31,7 +33,7 @@ public class WebSocketFacade extends Endpoint {
 
             //set message handler
             this.session.addMessageHandler(String.class, message -> {
-                ServerMessage notification = new Gson().fromJson(message, ServerMessage.class);
+                ServerMessage notification = GSON.fromJson(message, ServerMessage.class);
                 notificationHandler.notify(notification);
             });
         } catch (DeploymentException | IOException | URISyntaxException ex) {
@@ -46,10 +48,19 @@ public class WebSocketFacade extends Endpoint {
 
     public void sendMessage(UserGameCommand.CommandType type, String authToken, int gameID, String visitorColor,
                             String[] moveMade, ChessGame gameToUpdate) throws ResponseException {
+        sendMessage(type, authToken, gameID, visitorColor, moveMade, gameToUpdate, null);
+    }
+
+    /**
+     * @param move for MAKE_MOVE, the move for the server to validate and apply
+     */
+    public void sendMessage(UserGameCommand.CommandType type, String authToken, int gameID, String visitorColor,
+                            String[] moveMade, ChessGame gameToUpdate, ChessMove move) throws ResponseException {
         try {
+            // this client applies MOVE_APPLIED itself, so it never needs a full board per move
             var action = new UserGameCommand(type, authToken, gameID, visitorName, visitorColor,
-                    moveMade, gameToUpdate, null);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+                    moveMade, gameToUpdate, move, true);
+            this.session.getBasicRemote().sendText(GSON.toJson(action));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -0,0 +1,401 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bound pool of JDBC connections.
+ * <p>
+ * Borrowed connections are proxies whose close() hands the physical connection
+ * back to the pool instead of closing it, so callers keep using
+ * try-with-resources exactly as with DriverManager. Statements they create
+ * report the proxy from getConnection(), so the physical connection never
+ * escapes the lease. Idle connections are
+ * reused most-recently-returned first, checked with isValid() before being
+ * handed out if they have sat unused for a while, and closed by a background
+ * housekeeper once idle longer than the idle timeout (down to the minimum size).
+ */
+public class ConnectionPool implements AutoCloseable {
+    // connections returned this recently are handed out again without a validation round trip
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+    // how often a borrower waiting for a connection in transit checks whether a slot was freed instead
+    private static final long SLOT_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+
+    // one permit per connection that may be lent out at once
+    private final Semaphore permits;
+    // most recently returned connection first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    // open physical connections: lent out, idle, or being opened
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * @param minSize                  connections kept open even when idle
+     * @param maxSize                  most connections open at once; borrowers wait beyond this
+     * @param idleTimeoutMillis        how long a connection may sit idle before it is closed
+     * @param connectionTimeoutMillis  how long borrow() waits for a free connection
+     * @param validationTimeoutSeconds timeout passed to Connection.isValid when validating
+     */
+    public record Settings(int minSize, int maxSize, long idleTimeoutMillis, long connectionTimeoutMillis,
+                           int validationTimeoutSeconds) {
+        public Settings {
+            if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+                throw new IllegalArgumentException("Pool sizes must satisfy 0 <= minSize <= maxSize and maxSize >= 1");
+            }
+        }
+    }
+
+    private static class PooledConnection {
+        final Connection connection;
+        volatile long lastUsed = System.nanoTime();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lends out a connection, waiting up to the connection timeout for one to
+     * become free. Close the returned connection to give it back.
+     *
+     * @throws SQLTimeoutException if no connection became free in time
+     * @throws SQLException        if a new connection could not be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.connectionTimeoutMillis());
+        try {
+            if (!permits.tryAcquire(settings.connectionTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw timedOut();
+            }
+        } catch (InterruptedException e) {
+            throw interrupted();
+        }
+        waitNanos.add(System.nanoTime() - start);
+        borrows.increment();
+
+        try {
+            PooledConnection pooled = acquire(deadline);
+            active.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(pooled));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /* called with a permit held: reuse a healthy idle connection or open a new one */
+    private PooledConnection acquire(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null) {
+                if (reserve(settings.maxSize())) {
+                    return open();
+                }
+                // every slot is held by a connection being opened by the housekeeper, validated
+                // by another borrower, or returned; block until one reaches the idle list
+                pooled = awaitIdle(deadline);
+                if (pooled == null) {
+                    continue;
+                }
+            }
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+
+    /* waits for an idle connection, waking early so a slot freed by a discard is noticed */
+    private PooledConnection awaitIdle(long deadline) throws SQLException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw timedOut();
+        }
+        try {
+            return idle.pollFirst(Math.min(remaining, SLOT_RECHECK_NANOS), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            throw interrupted();
+        }
+    }
+
+    private SQLTimeoutException timedOut() {
+        timeouts.increment();
+        return new SQLTimeoutException(String.format("Timed out after %d ms waiting for a database connection",
+                settings.connectionTimeoutMillis()));
+    }
+
+    private SQLException interrupted() {
+        Thread.currentThread().interrupt();
+        return new SQLException("Interrupted while waiting for a database connection");
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (System.nanoTime() - pooled.lastUsed < VALIDATION_BYPASS_NANOS) {
+                return !pooled.connection.isClosed();
+            }
+            return pooled.connection.isValid(settings.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /* claims a slot for a new physical connection if fewer than limit are open */
+    private boolean reserve(int limit) {
+        int current;
+        do {
+            current = total.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!total.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /* opens a connection in a slot claimed by reserve() */
+    private PooledConnection open() throws SQLException {
+        try {
+            return new PooledConnection(factory.create());
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        total.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException ignored) {
+            // the connection is being thrown away either way
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        boolean reusable = !closed;
+        try {
+            if (reusable && !pooled.connection.getAutoCommit()) {
+                // don't let an unfinished transaction leak into the next borrower
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        if (reusable) {
+            pooled.lastUsed = System.nanoTime();
+            idle.offerFirst(pooled);
+        } else {
+            discard(pooled);
+        }
+        active.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Closes connections idle longer than the idle timeout, keeping at least
+     * the minimum size open, then opens connections up to the minimum size
+     */
+    void housekeep() {
+        long now = System.nanoTime();
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMillis());
+        // oldest connections sit at the tail
+        for (PooledConnection pooled : idle.toArray(new PooledConnection[0])) {
+            if (total.get() <= settings.minSize()) {
+                break;
+            }
+            if (now - pooled.lastUsed > idleTimeoutNanos && idle.remove(pooled)) {
+                evictions.increment();
+                discard(pooled);
+            }
+        }
+        while (!closed && reserve(settings.minSize())) {
+            try {
+                idle.offerLast(open());
+            } catch (SQLException e) {
+                // the database may be down; try again on the next run
+                break;
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeper. Connections
+     * still lent out are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public int getActiveConnections() {
+        return active.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getTotalConnections() {
+        return total.get();
+    }
+
+    /**
+     * @return number of threads currently waiting in borrow()
+     */
+    public int getPendingThreads() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return total time borrowers have spent waiting for a free connection
+     */
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    public double getAverageWaitMillis() {
+        long count = borrows.sum();
+        return count == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    /* the proxy handler for one borrow; close() returns the connection exactly once */
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            release(pooled);
+                        }
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    if (returned) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + pooled.connection;
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                }
+            }
+            Object result = call(pooled.connection, method, args);
+            if (result instanceof Statement statement) {
+                // createStatement, prepareStatement and prepareCall
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new StatementHandle(statement, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    /* a statement made through a lease; getConnection() gives back the lease rather than the physical connection */
+    private record StatementHandle(Statement statement, Connection lease) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "getConnection" -> lease;
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> call(statement, method, args);
+            };
+        }
+    }
+
+    /* forwards to the real object, rethrowing what it threw rather than the reflection wrapper */
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -10,6 +10,10 @@ import java.util.Map;
 public interface DataAccess {
     UserData getUser(String userName);
 
+    /**
+     * Stores a new user. The password is stored as given, so callers pass the
+     * hash rather than the plain password (see service.PasswordHasher).
+     */
     UserData createUser(UserData newUser);
 
     ModifiedGameData getGame(int gameID);
@@ -28,7 +32,11 @@ public interface DataAccess {
 
     void clear();
 
-    void updateGameMoves(int gameID, ChessGame newGame);
+    /**
+     * Stores a game's board. Throws if the board could not be stored or queued
+     * for storage, so callers that hold the only other copy can retry.
+     */
+    void updateGameMoves(int gameID, ChessGame newGame) throws DataAccessException;
 
     void markGameAsOver(int gameID);
 }
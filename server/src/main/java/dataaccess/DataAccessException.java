@@ -4,7 +4,24 @@ package dataaccess;
  * Indicates there was an error connecting to the database
  */
 public class DataAccessException extends Exception{
+    // true if the same call may succeed later, e.g. after a lost connection comes back
+    private final boolean retryable;
+
     public DataAccessException(String message) {
+        this(message, false);
+    }
+
+    public DataAccessException(String message, boolean retryable) {
         super(message);
+        this.retryable = retryable;
+    }
+
+    /**
+     * @return True if the failure is temporary, so repeating the call may
+     * succeed; false if it will fail the same way every time, e.g. a
+     * constraint violation or a value too long for its column
+     */
+    public boolean isRetryable() {
+        return retryable;
     }
 }
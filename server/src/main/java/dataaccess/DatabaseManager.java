@@ -8,6 +8,12 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final String POOLED_CONNECTION_URL;
+    private static final ConnectionPool POOL;
+    private static final boolean BATCH_WRITES;
+    private static final int BATCH_WINDOW_MILLIS;
+    private static final boolean MOVE_LOG;
+    private static final int SNAPSHOT_INTERVAL;
 
     /*
      * Load the database information for the db.properties file.
@@ -27,12 +33,35 @@ public class DatabaseManager {
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
                 CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                // pooled connections live long enough for the driver to reuse prepared statements
+                POOLED_CONNECTION_URL = CONNECTION_URL + "?useServerPrepStmts=true&cachePrepStmts=true"
+                        + "&prepStmtCacheSize=" + intProperty(props, "db.statementCacheSize", 250)
+                        + "&prepStmtCacheSqlLimit=2048&rewriteBatchedStatements=true";
+
+                var poolSettings = new ConnectionPool.Settings(
+                        intProperty(props, "db.pool.minSize", 2),
+                        intProperty(props, "db.pool.maxSize", 10),
+                        intProperty(props, "db.pool.idleTimeoutMs", 600_000),
+                        intProperty(props, "db.pool.connectionTimeoutMs", 30_000),
+                        intProperty(props, "db.pool.validationTimeoutSec", 5));
+                POOL = new ConnectionPool(DatabaseManager::openConnection, poolSettings);
+
+                BATCH_WRITES = Boolean.parseBoolean(props.getProperty("db.batchWrites", "false").trim());
+                BATCH_WINDOW_MILLIS = intProperty(props, "db.batchWindowMs", 5);
+
+                MOVE_LOG = "moveLog".equalsIgnoreCase(props.getProperty("db.gameStorage", "snapshot").trim());
+                SNAPSHOT_INTERVAL = Math.max(1, intProperty(props, "db.moveLog.snapshotInterval", 20));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
     }
 
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        var value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
@@ -49,10 +78,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
+     * Borrows a connection from the pool, with the catalog set based upon the
      * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * be short-lived, and you must close the connection when you are done with it,
+     * which returns it to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DbInfo.getConnection(databaseName)) {
@@ -62,11 +92,58 @@ public class DatabaseManager {
      */
     static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+            return POOL.borrow();
+        } catch (SQLException e) {
+            // no connection could be had right now, which may change
+            throw new DataAccessException(e.getMessage(), true);
+        }
+    }
+
+    /**
+     * @return the pool behind getConnection, for reading its metrics
+     */
+    public static ConnectionPool getConnectionPool() {
+        return POOL;
+    }
+
+    /**
+     * @return True if game updates should be queued and written in batches
+     */
+    static boolean isWriteBatchingEnabled() {
+        return BATCH_WRITES;
+    }
+
+    /**
+     * @return how long a queued game update may wait for others to join its batch
+     */
+    static int getBatchWindowMillis() {
+        return BATCH_WINDOW_MILLIS;
+    }
+
+    /**
+     * @return True if game boards are stored as a log of moves rather than
+     * rewritten whole on every update
+     */
+    static boolean isMoveLogEnabled() {
+        return MOVE_LOG;
+    }
+
+    /**
+     * @return how many logged moves may pile up before a new snapshot is stored
+     */
+    static int getSnapshotInterval() {
+        return SNAPSHOT_INTERVAL;
+    }
+
+    /* opens a physical connection for the pool */
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(POOLED_CONNECTION_URL, USER, PASSWORD);
+        try {
             conn.setCatalog(DATABASE_NAME);
             return conn;
         } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+            conn.close();
+            throw e;
         }
     }
 }
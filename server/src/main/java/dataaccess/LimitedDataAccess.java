@@ -0,0 +1,173 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Wraps another DataAccess so that at most a fixed number of calls run at
+ * once; callers beyond that wait their turn, and give up with
+ * "Error: server busy" if they wait too long.
+ * <p>
+ * Used when requests run on virtual threads. Those are cheap enough that
+ * thousands can be in flight, but each one that reaches JDBC holds a pooled
+ * connection and, because the MySQL driver blocks inside synchronized code,
+ * pins its carrier thread while it waits on the socket. Keeping the limit
+ * at or below the number of carrier threads leaves some free to run
+ * everything else.
+ */
+public class LimitedDataAccess implements DataAccess {
+    public static final String BUSY_MESSAGE = "Error: server busy";
+
+    private final DataAccess delegate;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxConcurrent most calls let through to the delegate at once
+     * @param timeoutMillis longest a call waits for its turn
+     */
+    public LimitedDataAccess(DataAccess delegate, int maxConcurrent, long timeoutMillis) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.delegate = delegate;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public UserData getUser(String userName) {
+        return limited(() -> delegate.getUser(userName));
+    }
+
+    @Override
+    public UserData createUser(UserData newUser) {
+        return limited(() -> delegate.createUser(newUser));
+    }
+
+    @Override
+    public ModifiedGameData getGame(int gameID) {
+        return limited(() -> delegate.getGame(gameID));
+    }
+
+    @Override
+    public GameData createGame(String gameName) {
+        return limited(() -> delegate.createGame(gameName));
+    }
+
+    @Override
+    public Map<String, List<GameData>> listGames() {
+        return limited(delegate::listGames);
+    }
+
+    @Override
+    public void updateGame(int gameID, String playerColor, String username) {
+        limited(() -> {
+            delegate.updateGame(gameID, playerColor, username);
+            return null;
+        });
+    }
+
+    @Override
+    public AuthData createAuth(String username) {
+        return limited(() -> delegate.createAuth(username));
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) {
+        return limited(() -> delegate.getAuth(authToken));
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        acquire();
+        try {
+            delegate.deleteAuth(authToken);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void clear() {
+        limited(() -> {
+            delegate.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public void updateGameMoves(int gameID, ChessGame newGame) throws DataAccessException {
+        acquire();
+        try {
+            delegate.updateGameMoves(gameID, newGame);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void markGameAsOver(int gameID) {
+        limited(() -> {
+            delegate.markGameAsOver(gameID);
+            return null;
+        });
+    }
+
+    /**
+     * @return calls currently running against the delegate
+     */
+    public int getActiveCalls() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return calls waiting for their turn
+     */
+    public int getWaitingCalls() {
+        return permits.getQueueLength();
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private <T> T limited(Supplier<T> call) {
+        acquire();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new IllegalStateException(BUSY_MESSAGE);
+        }
+        calls.increment();
+    }
+}
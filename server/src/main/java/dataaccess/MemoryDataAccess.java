@@ -2,7 +2,6 @@ package dataaccess;
 
 import chess.ChessGame;
 import model.*;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.util.*;
 
@@ -19,8 +18,7 @@ public class MemoryDataAccess implements DataAccess {
 
     @Override
     public UserData createUser(UserData newUser) {
-        String hash = BCrypt.hashpw(newUser.password(), BCrypt.gensalt());
-        UserData user = new UserData(newUser.username(), hash, newUser.email());
+        UserData user = new UserData(newUser.username(), newUser.password(), newUser.email());
 
         users.put(newUser.username(), user);
         return user;
@@ -29,6 +27,9 @@ public class MemoryDataAccess implements DataAccess {
     @Override
     public ModifiedGameData getGame(int gameID) {
         ModifiedGameData game = games.get(gameID);
+        if (game == null) {
+            return null;
+        }
         return new ModifiedGameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
                 game.gameName(), game.game(), 0);
     }
@@ -96,7 +97,7 @@ public class MemoryDataAccess implements DataAccess {
     }
 
     @Override
-    public void updateGameMoves(int gameID, ChessGame newGame) {
+    public void updateGameMoves(int gameID, ChessGame newGame) throws DataAccessException {
         ModifiedGameData game = games.get(gameID);
         ModifiedGameData updatedGame = new ModifiedGameData(game.gameID(), game.whiteUsername(),
                 game.blackUsername(), game.gameName(), newGame, game.isOver());
@@ -1,18 +1,31 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessGameCodec;
 import model.*;
-import org.mindrot.jbcrypt.BCrypt;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 import static java.sql.Types.NULL;
 
 public class MySqlDataAccess implements DataAccess {
+    // shared by every instance so a read through one sees writes queued through another
+    private static final WriteBatcher WRITE_BATCHER = createWriteBatcher();
+
+    // last ply stored for each game in move log mode, so appends don't have to read it back
+    private final Map<Integer, Integer> storedPlies = new ConcurrentHashMap<>();
+
+    /* identifies the column of a game row a queued write overwrites */
+    private record GameColumn(int gameID, String column) {
+    }
 
     public MySqlDataAccess() {
         try {
@@ -48,10 +61,9 @@ public class MySqlDataAccess implements DataAccess {
     @Override
     public UserData createUser(UserData newUser) {
         UserData user = new UserData(newUser.username(), newUser.password(), newUser.email());
-        String hash = BCrypt.hashpw(newUser.password(), BCrypt.gensalt());
         var statement = "INSERT INTO user (username, password, email) VALUES (?, ?, ?)";
         try {
-            var id = executeUpdate(statement, newUser.username(), hash, newUser.email());
+            var id = executeUpdate(statement, newUser.username(), newUser.password(), newUser.email());
             System.out.printf("Created user with id %s%n", id);
         } catch (Exception ex) {
             System.out.println("Error creating user");
@@ -62,13 +74,14 @@ public class MySqlDataAccess implements DataAccess {
 
     @Override
     public ModifiedGameData getGame(int gameID) {
+        flushPendingWrites();
         try (var conn = DatabaseManager.getConnection()) {
             var statement = "SELECT id, white_username, black_username, game_name, game, is_over FROM game WHERE id=?";
             try (var ps = conn.prepareStatement(statement)) {
                 ps.setInt(1, gameID);
                 try (var rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        return readGame(rs);
+                        return withMoveLog(conn, readGame(rs));
                     }
                 }
             }
@@ -82,9 +95,9 @@ public class MySqlDataAccess implements DataAccess {
     public GameData createGame(String gameName) {
         var statement = "INSERT INTO game (white_username, black_username, game_name, game) VALUES (?, ?, ?, ?)";
         ChessGame newGame = new ChessGame();
-        var json = new Gson().toJson(newGame);
+        var encoded = ChessGameCodec.toStorage(newGame);
         try {
-            var id = executeUpdate(statement, null, null, gameName, json);
+            var id = executeUpdate(statement, null, null, gameName, encoded);
             System.out.printf("Created game with id %s%n", id);
             return new GameData(id, "", "", gameName, newGame);
         } catch (Exception ex) {
@@ -96,12 +109,13 @@ public class MySqlDataAccess implements DataAccess {
     @Override
     public Map<String, List<GameData>> listGames() {
         List<GameData> result = new ArrayList<>();
+        flushPendingWrites();
         try (var conn = DatabaseManager.getConnection()) {
             var statement = "SELECT id, white_username, black_username, game_name, game, is_over FROM game";
             try (var ps = conn.prepareStatement(statement)) {
                 try (var rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        ModifiedGameData game = readGame(rs);
+                        ModifiedGameData game = withMoveLog(conn, readGame(rs));
                         GameData newGame = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
                                 game.gameName(), game.game());
                         result.add(newGame);
@@ -120,10 +134,10 @@ public class MySqlDataAccess implements DataAccess {
         try {
             if (Objects.equals(playerColor, "WHITE")) {
                 var statement = "UPDATE game SET white_username = ? WHERE id = ?";
-                executeUpdate(statement, username, gameID);
+                executeOrQueue(new GameColumn(gameID, "white_username"), statement, username, gameID);
             } else {
                 var statement = "UPDATE game SET black_username = ? WHERE id = ?";
-                executeUpdate(statement, username, gameID);
+                executeOrQueue(new GameColumn(gameID, "black_username"), statement, username, gameID);
             }
             System.out.printf("Updated game with id %s%n", gameID);
         } catch (Exception ex) {
@@ -148,15 +162,12 @@ public class MySqlDataAccess implements DataAccess {
     @Override
     public AuthData getAuth(String authToken) {
         try (var conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT id, username FROM auth WHERE auth_token=?";
+            var statement = "SELECT username FROM auth WHERE auth_token=?";
             try (var ps = conn.prepareStatement(statement)) {
                 ps.setString(1, authToken);
                 try (var rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        int id = rs.getInt("id");
                         String username = rs.getString("username");
-                        System.out.printf("Got user with id %s%n", id);
-
                         return new AuthData(authToken, username);
                     }
                 }
@@ -181,14 +192,22 @@ public class MySqlDataAccess implements DataAccess {
     }
 
     @Override
-    public void updateGameMoves(int gameID, ChessGame newGame) {
+    public void updateGameMoves(int gameID, ChessGame newGame) throws DataAccessException {
         try {
-            var json = new Gson().toJson(newGame);
-            var statement = "UPDATE game SET game = ? WHERE id = ?";
-            executeUpdate(statement, json, gameID);
+            if (DatabaseManager.isMoveLogEnabled()) {
+                appendMoves(gameID, newGame);
+            } else {
+                var encoded = ChessGameCodec.toStorage(newGame);
+                var statement = "UPDATE game SET game = ? WHERE id = ?";
+                executeOrQueue(new GameColumn(gameID, "game"), statement, encoded, gameID);
+            }
             System.out.printf("Updated game with id %s%n", gameID);
+        } catch (DataAccessException ex) {
+            System.out.println("Error updating game");
+            throw ex;
         } catch (Exception ex) {
             System.out.println("Error updating game");
+            throw new DataAccessException(String.format("unable to update game: %s", ex.getMessage()));
         }
     }
 
@@ -196,7 +215,7 @@ public class MySqlDataAccess implements DataAccess {
     public void markGameAsOver(int gameID) {
         var statement = "UPDATE game SET is_over = 1 WHERE id = ?";
         try {
-            executeUpdate(statement, gameID);
+            executeOrQueue(new GameColumn(gameID, "is_over"), statement, gameID);
             System.out.println("Game was set to over.");
         } catch (Exception ex) {
             System.out.println("Error updating game");
@@ -205,6 +224,9 @@ public class MySqlDataAccess implements DataAccess {
 
     @Override
     public void clear() {
+        if (WRITE_BATCHER != null) {
+            WRITE_BATCHER.discard();
+        }
         try {
             var userStatement = "TRUNCATE TABLE user";
             executeUpdate(userStatement);
@@ -212,6 +234,9 @@ public class MySqlDataAccess implements DataAccess {
             executeUpdate(authStatement);
             var gameStatement = "TRUNCATE TABLE game";
             executeUpdate(gameStatement);
+            executeUpdate("TRUNCATE TABLE game_move");
+            executeUpdate("TRUNCATE TABLE game_snapshot");
+            storedPlies.clear();
             System.out.println("Deleted user, auth, game tables");
         } catch (Exception ex) {
             System.out.println("Error clearing database");
@@ -223,30 +248,121 @@ public class MySqlDataAccess implements DataAccess {
         String whiteUsername = rs.getString("white_username");
         String blackUsername = rs.getString("black_username");
         String gameName = rs.getString("game_name");
-        String json = rs.getString("game");
+        String encoded = rs.getString("game");
         String isOver = rs.getString("is_over");
-        ChessGame game = new Gson().fromJson(json, ChessGame.class);
+        // rows written before the binary codec hold Gson JSON, which fromStorage still reads
+        ChessGame game = ChessGameCodec.fromStorage(encoded);
         return new ModifiedGameData(id, whiteUsername, blackUsername, gameName, game, Integer.parseInt(isOver));
     }
 
-    private int executeUpdate(String statement, Object... params) throws DataAccessException {
+    /*
+     * Move log mode stores a game as its most recent snapshot (game_snapshot, or
+     * the game column for a game without one) plus a game_move row for every
+     * move played after it. A new snapshot is written every snapshot interval
+     * plies so loading never replays more than that many moves.
+     */
+
+    /* appends the moves played since the last stored ply, or stores a snapshot if they aren't known */
+    private void appendMoves(int gameID, ChessGame game) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
-                for (var i = 0; i < params.length; i++) {
-                    var param = params[i];
-                    if (param instanceof String p) {
-                        ps.setString(i + 1, p);
-                    }
-                    else if (param instanceof Integer p) {
-                        ps.setInt(i + 1, p);
-                    }
-                    else if (param instanceof ChessGame p) {
-                        ps.setString(i + 1, p.toString());
+            Integer stored = storedPlies.get(gameID);
+            int storedPly = stored != null ? stored : readStoredPly(conn, gameID);
+            int[] moves = game.movesSince(storedPly);
+            // a game with no history at the stored ply may still hold a different position, e.g. an upload
+            boolean noHistory = game.movesSince(game.getPly() - 1) == null;
+            int interval = DatabaseManager.getSnapshotInterval();
+
+            conn.setAutoCommit(false);
+            try {
+                if (moves == null || moves.length == 0 && noHistory) {
+                    // the game was replaced rather than played forward, e.g. uploaded by a client
+                    writeSnapshot(conn, gameID, game);
+                } else {
+                    try (var ps = conn.prepareStatement("INSERT INTO game_move (game_id, ply, move) VALUES (?, ?, ?)")) {
+                        for (int i = 0; i < moves.length; i++) {
+                            setParams(ps, gameID, storedPly + i + 1, moves[i]);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
                     }
-                    else if (param == null) {
-                        ps.setNull(i + 1, NULL);
+                    if (storedPly / interval != game.getPly() / interval) {
+                        writeSnapshot(conn, gameID, game);
                     }
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                storedPlies.remove(gameID);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            storedPlies.put(gameID, game.getPly());
+        } catch (SQLException e) {
+            throw new DataAccessException(String.format("unable to append moves: %s", e.getMessage()));
+        }
+    }
+
+    private int readStoredPly(Connection conn, int gameID) throws SQLException {
+        var statement = """
+                SELECT GREATEST(COALESCE((SELECT MAX(ply) FROM game_move WHERE game_id = ?), 0),
+                                COALESCE((SELECT ply FROM game_snapshot WHERE game_id = ?), 0))
+                """;
+        try (var ps = conn.prepareStatement(statement)) {
+            setParams(ps, gameID, gameID);
+            try (var rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /* stores the whole game and drops logged moves past it, which a rewound game no longer has */
+    private void writeSnapshot(Connection conn, int gameID, ChessGame game) throws SQLException {
+        var upsert = "INSERT INTO game_snapshot (game_id, ply, game) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE ply = VALUES(ply), game = VALUES(game)";
+        try (var ps = conn.prepareStatement(upsert)) {
+            setParams(ps, gameID, game.getPly(), ChessGameCodec.toStorage(game));
+            ps.executeUpdate();
+        }
+        try (var ps = conn.prepareStatement("DELETE FROM game_move WHERE game_id = ? AND ply > ?")) {
+            setParams(ps, gameID, game.getPly());
+            ps.executeUpdate();
+        }
+    }
+
+    /* in move log mode, replaces the stored game with its latest snapshot plus the moves logged after it */
+    private ModifiedGameData withMoveLog(Connection conn, ModifiedGameData data) throws SQLException {
+        if (!DatabaseManager.isMoveLogEnabled()) {
+            return data;
+        }
+        ChessGame game = data.game();
+        try (var ps = conn.prepareStatement("SELECT game FROM game_snapshot WHERE game_id = ?")) {
+            setParams(ps, data.gameID());
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    game = ChessGameCodec.fromStorage(rs.getString("game"));
+                }
+            }
+        }
+        var statement = "SELECT move FROM game_move WHERE game_id = ? AND ply > ? ORDER BY ply";
+        try (var ps = conn.prepareStatement(statement)) {
+            setParams(ps, data.gameID(), game.getPly());
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // replayed moves become the game's history, so later moves can be appended to it
+                    game.makeMove(rs.getInt("move"));
+                }
+            }
+        }
+        storedPlies.put(data.gameID(), game.getPly());
+        return new ModifiedGameData(data.gameID(), data.whiteUsername(), data.blackUsername(), data.gameName(),
+                game, data.isOver());
+    }
+
+    private int executeUpdate(String statement, Object... params) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
+                setParams(ps, params);
                 ps.executeUpdate();
 
                 var rs = ps.getGeneratedKeys();
@@ -261,6 +377,106 @@ public class MySqlDataAccess implements DataAccess {
         }
     }
 
+    /* queues the update when write batching is on, otherwise runs it straight away */
+    private void executeOrQueue(GameColumn key, String statement, Object... params) throws DataAccessException {
+        if (WRITE_BATCHER != null) {
+            WRITE_BATCHER.submit(key, statement, params);
+        } else {
+            executeUpdate(statement, params);
+        }
+    }
+
+    /* writes queued updates before a read; a read that would miss some of them fails instead of returning stale data */
+    private static void flushPendingWrites() {
+        if (WRITE_BATCHER != null) {
+            try {
+                WRITE_BATCHER.flush();
+            } catch (DataAccessException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * @return the shared write batcher, or null if write batching is off
+     */
+    public static WriteBatcher getWriteBatcher() {
+        return WRITE_BATCHER;
+    }
+
+    private static WriteBatcher createWriteBatcher() {
+        if (!DatabaseManager.isWriteBatchingEnabled()) {
+            return null;
+        }
+        var batcher = new WriteBatcher(DatabaseManager.getBatchWindowMillis(), MySqlDataAccess::executeBatch);
+        Runtime.getRuntime().addShutdownHook(new Thread(batcher::flushInBackground));
+        return batcher;
+    }
+
+    /* runs the writes as one JDBC batch per statement, all in a single transaction */
+    private static void executeBatch(List<WriteBatcher.Write> writes) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+                try {
+                    for (var write : writes) {
+                        var ps = statements.get(write.statement());
+                        if (ps == null) {
+                            ps = conn.prepareStatement(write.statement());
+                            statements.put(write.statement(), ps);
+                        }
+                        setParams(ps, write.params());
+                        ps.addBatch();
+                    }
+                    for (var ps : statements.values()) {
+                        ps.executeBatch();
+                    }
+                } finally {
+                    for (var ps : statements.values()) {
+                        ps.close();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException(String.format("unable to write batch: %s", e.getMessage()), isTransient(e));
+        }
+    }
+
+    /* true for failures a later try may get past: lost connections, timeouts, deadlocks and rollbacks */
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        // SQLState class 08 is a connection exception, class 40 a transaction rollback
+        return state != null && (state.startsWith("08") || state.startsWith("40"));
+    }
+
+    private static void setParams(PreparedStatement ps, Object... params) throws SQLException {
+        for (var i = 0; i < params.length; i++) {
+            var param = params[i];
+            if (param instanceof String p) {
+                ps.setString(i + 1, p);
+            }
+            else if (param instanceof Integer p) {
+                ps.setInt(i + 1, p);
+            }
+            else if (param instanceof ChessGame p) {
+                ps.setString(i + 1, p.toString());
+            }
+            else if (param == null) {
+                ps.setNull(i + 1, NULL);
+            }
+        }
+    }
+
     private final String[] createStatements = {
             """
             CREATE TABLE IF NOT EXISTS user (
@@ -292,6 +508,22 @@ public class MySqlDataAccess implements DataAccess {
                 PRIMARY KEY (`id`),
                 INDEX(game_name)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci AUTO_INCREMENT=1
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS game_move (
+                `game_id` int NOT NULL,
+                `ply` int NOT NULL,
+                `move` int NOT NULL,
+                PRIMARY KEY (`game_id`, `ply`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS game_snapshot (
+                `game_id` int NOT NULL,
+                `ply` int NOT NULL,
+                `game` varchar(2048) NOT NULL,
+                PRIMARY KEY (`game_id`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
             """
     };
 
@@ -0,0 +1,284 @@
+package dataaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects writes for a short window and hands them to a sink as one batch.
+ * <p>
+ * Each write is queued under a key naming the row and column it overwrites, so
+ * a later write with the same key replaces the earlier one instead of adding a
+ * round trip; a game that moves five times within the window is written once.
+ * Batches are flushed one at a time in submission order, and flush() can be
+ * called before a read to make sure the read sees every queued write.
+ * <p>
+ * A batch that fails with a retryable DataAccessException (e.g. a lost
+ * connection) is queued again, ahead of anything submitted since, and retried
+ * after a growing delay; writes a newer submit has replaced are skipped, and a
+ * write still failing after MAX_ATTEMPTS tries is dropped. A batch that fails
+ * for good (e.g. a value too long for its column) is split in half and each
+ * half written on its own, down to the single writes that fail, which are
+ * dropped so they can't hold back the rest.
+ */
+public class WriteBatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBatcher.class);
+    // tries a write gets before it is dropped, counting the first
+    static final int MAX_ATTEMPTS = 10;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "write-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long windowMillis;
+    private final BatchSink sink;
+
+    // guarded by this; insertion ordered so batches keep the order writes arrived in
+    private final Map<Object, Write> pending = new LinkedHashMap<>();
+    // guarded by this; failed tries so far for each pending write that has failed
+    private final Map<Object, Integer> attempts = new HashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    // held for the whole of a flush so batches reach the sink one at a time, in order
+    private final Object flushLock = new Object();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder droppedWrites = new LongAdder();
+
+    /**
+     * A single parameterized statement waiting to be written
+     */
+    public record Write(String statement, Object... params) {
+    }
+
+    /**
+     * Writes a batch, all or nothing. Failures that may pass on a later try
+     * are thrown as retryable DataAccessExceptions.
+     */
+    @FunctionalInterface
+    public interface BatchSink {
+        void write(List<Write> writes) throws DataAccessException;
+    }
+
+    /**
+     * @param windowMillis how long a write may wait for others to join its batch
+     * @param sink         where batches are written
+     */
+    public WriteBatcher(long windowMillis, BatchSink sink) {
+        this.windowMillis = windowMillis;
+        this.sink = sink;
+    }
+
+    /**
+     * Queues a write, replacing any queued write with the same key
+     *
+     * @param key       identifies what the write overwrites, e.g. one column of one row
+     * @param statement the SQL to run
+     * @param params    the statement parameters
+     */
+    public synchronized void submit(Object key, String statement, Object... params) {
+        submitted.increment();
+        // remove first so a replaced write moves to the back of the batch
+        if (pending.remove(key) != null) {
+            coalesced.increment();
+        }
+        pending.put(key, new Write(statement, params));
+        // new contents get a fresh set of tries
+        attempts.remove(key);
+        if (scheduledFlush == null) {
+            scheduledFlush = SCHEDULER.schedule(this::flushInBackground, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes every queued write now, waiting for any flush already in progress
+     *
+     * @throws DataAccessException if any queued write was not written, whether
+     *                             it was queued again or dropped; a read made
+     *                             after this would miss it
+     */
+    public void flush() throws DataAccessException {
+        synchronized (flushLock) {
+            Map<Object, Write> drained = drain();
+            if (drained.isEmpty()) {
+                return;
+            }
+            Map<Object, Write> retry = new LinkedHashMap<>();
+            List<Map.Entry<Object, Write>> rejected = new ArrayList<>();
+            DataAccessException error = writeOrSplit(new ArrayList<>(drained.entrySet()), retry, rejected);
+            forgetAttempts(drained, retry);
+            if (!retry.isEmpty()) {
+                requeue(retry, error);
+            }
+            if (error != null) {
+                throw new DataAccessException(String.format("Error: %d of %d queued updates not written: %s",
+                        retry.size() + rejected.size(), drained.size(), error.getMessage()), !retry.isEmpty());
+            }
+        }
+    }
+
+    /* the scheduled flush; failures are already logged and the writes requeued or dropped */
+    void flushInBackground() {
+        try {
+            flush();
+        } catch (DataAccessException ignored) {
+        }
+    }
+
+    /*
+     * Writes a batch, splitting it in half whenever it fails for good until the
+     * failing writes are alone, and returns the last error seen, or null. Writes
+     * that failed temporarily go to retry, together with everything after them;
+     * writes that failed for good go to rejected.
+     */
+    private DataAccessException writeOrSplit(List<Map.Entry<Object, Write>> batch, Map<Object, Write> retry,
+                                             List<Map.Entry<Object, Write>> rejected) {
+        if (!retry.isEmpty()) {
+            // the database already failed temporarily this flush; don't try it again until the next
+            batch.forEach(entry -> retry.put(entry.getKey(), entry.getValue()));
+            return null;
+        }
+        try {
+            sink.write(batch.stream().map(Map.Entry::getValue).toList());
+            batches.increment();
+            return null;
+        } catch (DataAccessException ex) {
+            failedBatches.increment();
+            if (ex.isRetryable()) {
+                batch.forEach(entry -> retry.put(entry.getKey(), entry.getValue()));
+                return ex;
+            }
+            if (batch.size() == 1) {
+                rejected.add(batch.get(0));
+                droppedWrites.increment();
+                LOG.error("Dropping update {} {}, which the database rejected: {}", batch.get(0).getValue().statement(),
+                        List.of(batch.get(0).getValue().params()), ex.getMessage());
+                return ex;
+            }
+            int half = batch.size() / 2;
+            DataAccessException first = writeOrSplit(batch.subList(0, half), retry, rejected);
+            DataAccessException second = writeOrSplit(batch.subList(half, batch.size()), retry, rejected);
+            return second != null ? second : first;
+        }
+    }
+
+    /* forgets the failed tries of writes that were written or dropped */
+    private synchronized void forgetAttempts(Map<Object, Write> drained, Map<Object, Write> retry) {
+        for (Object key : drained.keySet()) {
+            if (!retry.containsKey(key) && !pending.containsKey(key)) {
+                attempts.remove(key);
+            }
+        }
+    }
+
+    /*
+     * Puts writes that failed temporarily back in front of the queue, skipping
+     * writes that were replaced while they were out and dropping writes that
+     * have used up their tries, and schedules the next try after a delay that
+     * doubles with each failure
+     */
+    private synchronized void requeue(Map<Object, Write> failed, DataAccessException error) {
+        Map<Object, Write> merged = new LinkedHashMap<>();
+        int mostAttempts = 0;
+        for (Map.Entry<Object, Write> entry : failed.entrySet()) {
+            Object key = entry.getKey();
+            if (pending.containsKey(key)) {
+                continue;
+            }
+            int tries = attempts.merge(key, 1, Integer::sum);
+            if (tries >= MAX_ATTEMPTS) {
+                attempts.remove(key);
+                droppedWrites.increment();
+                LOG.error("Dropping update {} {} after {} tries: {}", entry.getValue().statement(),
+                        List.of(entry.getValue().params()), tries, error.getMessage());
+                continue;
+            }
+            mostAttempts = Math.max(mostAttempts, tries);
+            merged.put(key, entry.getValue());
+        }
+        if (merged.isEmpty()) {
+            return;
+        }
+        LOG.warn("Error writing batch of {} updates, retrying: {}", merged.size(), error.getMessage());
+        merged.putAll(pending);
+        pending.clear();
+        pending.putAll(merged);
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        long delay = Math.min(windowMillis << Math.min(mostAttempts, 20), MAX_RETRY_DELAY_MILLIS);
+        scheduledFlush = SCHEDULER.schedule(this::flushInBackground, Math.max(delay, windowMillis),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops every queued write without writing it
+     */
+    public void discard() {
+        synchronized (flushLock) {
+            drain();
+            synchronized (this) {
+                attempts.clear();
+            }
+        }
+    }
+
+    private synchronized Map<Object, Write> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        Map<Object, Write> writes = new LinkedHashMap<>(pending);
+        pending.clear();
+        return writes;
+    }
+
+    public synchronized int getPendingWrites() {
+        return pending.size();
+    }
+
+    public long getSubmittedWrites() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return writes that never reached the database because a later write replaced them
+     */
+    public long getCoalescedWrites() {
+        return coalesced.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return batches the sink rejected, including each half of a split batch that failed
+     */
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * @return writes given up on, because the database rejected them for good
+     * or kept failing for MAX_ATTEMPTS tries
+     */
+    public long getDroppedWriteCount() {
+        return droppedWrites.sum();
+    }
+}
@@ -3,24 +3,50 @@ package server;
 import com.google.gson.Gson;
 import dataaccess.*;
 import model.*;
+import server.websocket.GameMailboxes;
 import server.websocket.WebSocketHandler;
 import service.ServiceException;
 import spark.*;
 import service.Service;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 import java.io.Reader;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-
+import java.util.concurrent.Executors;
+
+/**
+ * The HTTP and websocket server.
+ * <p>
+ * By default Jetty handles requests on its fixed pool of platform threads.
+ * With system property chess.server.virtualThreads=true every request and
+ * websocket command (including each game's mailbox drain) runs on its own
+ * virtual thread instead, and database calls pass through a LimitedDataAccess
+ * allowing chess.server.dbConcurrency calls at once (default: one per
+ * processor), each waiting at most chess.server.dbWaitMs (default 30000)
+ * before failing with 503.
+ */
 public class Server {
-    private final DataAccess dataAccess = new MySqlDataAccess();
+    private final boolean virtualThreads = Boolean.getBoolean("chess.server.virtualThreads");
+    private final DataAccess dataAccess = virtualThreads
+            ? new LimitedDataAccess(new MySqlDataAccess(),
+                    Integer.getInteger("chess.server.dbConcurrency", Runtime.getRuntime().availableProcessors()),
+                    Long.getLong("chess.server.dbWaitMs", 30_000))
+            : new MySqlDataAccess();
     private final Service service = new Service(dataAccess);
     private final Gson serializer = new Gson();
-    private final WebSocketHandler webSocketHandler = new WebSocketHandler();
+    private final WebSocketHandler webSocketHandler = new WebSocketHandler(service, virtualThreads
+            ? new GameMailboxes(Executors.newVirtualThreadPerTaskExecutor())
+            : new GameMailboxes());
 
     public int run(int desiredPort) {
+        // replaced on every run so a platform-thread server started after a virtual-thread one gets Jetty's own pool
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, virtualThreads
+                ? new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool("chess-request-"))
+                : new EmbeddedJettyFactory());
         Spark.port(desiredPort);
 
         Spark.staticFiles.location("web");
@@ -51,7 +77,11 @@ public class Server {
         Spark.put("/game", this::joinGame);
         Spark.exception(Exception.class, this::exceptionHandler);
 
-        // update game endpoint
+        // make move endpoint
+        Spark.put("/game/move", this::makeMove);
+        Spark.exception(Exception.class, this::exceptionHandler);
+
+        // update game endpoint, deprecated in favour of /game/move
         Spark.put("/update-game", this::updateGame);
         Spark.exception(Exception.class, this::exceptionHandler);
 
@@ -111,10 +141,39 @@ public class Server {
         return serializer.toJson(Map.of("message", "Success"));
     }
 
+    private String makeMove(Request req, Response res) throws Exception {
+        String username = service.getAuth(req.headers("authorization"));
+        if (username == null) {
+            throw new ServiceException("Error: unauthorized");
+        }
+        MoveRequest move = serializer.fromJson(req.body(), MoveRequest.class);
+        if (move == null || move.move() == null) {
+            throw new ServiceException("Error: bad request");
+        }
+        // applied in the game's websocket mailbox so it is ordered with, and broadcast like, MAKE_MOVE
+        webSocketHandler.makeMove(username, move.gameID(), move.move());
+        res.status(200);
+        return serializer.toJson(Map.of("message", "Success"));
+    }
+
+    /**
+     * @deprecated clients upload the whole game here after applying a move
+     * themselves; send the move to /game/move (or MAKE_MOVE) instead
+     */
+    @Deprecated
     private String updateGame(Request req, Response res) throws Exception {
+        res.header("Deprecation", "true");
+        res.header("Link", "</game/move>; rel=\"successor-version\"");
+        String username = service.getAuth(req.headers("authorization"));
+        if (username == null) {
+            throw new ServiceException("Error: unauthorized");
+        }
         UpdateGameRequest game = serializer.fromJson(req.body(), UpdateGameRequest.class);
-        // will replace the game in the database with the new game
-        service.updateMoves(game.gameID(), game.game());
+        if (game == null) {
+            throw new ServiceException("Error: bad request");
+        }
+        // replaced in the game's mailbox so it can't race /game/move or MAKE_MOVE
+        webSocketHandler.replaceGame(username, game.gameID(), game.game());
         res.status(200);
         return serializer.toJson(Map.of("message", "Success"));
     }
@@ -134,7 +193,11 @@ public class Server {
 
     private void exceptionHandler(Exception ex, Request req, Response res) {
         // handle error codes
-        if (ex instanceof ServiceException) {
+        if (Objects.equals(ex.getMessage(), ServiceException.BUSY_MESSAGE)
+                || Objects.equals(ex.getMessage(), LimitedDataAccess.BUSY_MESSAGE)) {
+            // PasswordHasher or LimitedDataAccess shedding load
+            res.status(503);
+        } else if (ex instanceof ServiceException) {
             if (Objects.equals(ex.getMessage(), "Error: already taken")) {
                 res.status(403);
             } else if (Objects.equals(ex.getMessage(), "Error: unauthorized")) {
@@ -154,5 +217,7 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        // write out moves still held in memory and stop the background pools
+        service.close();
     }
 }
@@ -0,0 +1,100 @@
+package server;
+
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A Jetty ThreadPool that runs every request task on its own new virtual
+ * thread, and Jetty's own acceptor and selector loops on platform threads.
+ * <p>
+ * Jetty then dispatches each HTTP request and websocket frame onto a virtual
+ * thread, so a request blocked on the database or on BCrypt parks cheaply
+ * instead of holding one of a fixed number of platform threads. There is no
+ * upper bound here; the expensive resources behind the requests are bounded
+ * where they are used (LimitedDataAccess, PasswordHasher).
+ * <p>
+ * The acceptor and selector loops run for the life of the connector and block
+ * in accept() and select(), which pin a virtual thread to its carrier; on
+ * virtual threads they would take carriers away from the requests. They are
+ * few (one per acceptor and selector), so each gets a platform thread.
+ * <p>
+ * Requires Java 21.
+ */
+public class VirtualThreadPool implements ThreadPool {
+    // tasks Jetty 9.4 submits once at start and that only return when the connector stops
+    private static final String ACCEPTOR = "org.eclipse.jetty.server.AbstractConnector$Acceptor";
+    // ManagedSelector starts its select loop with execute(_strategy::produce)
+    private static final String SELECTOR = "org.eclipse.jetty.io.ManagedSelector$$Lambda";
+
+    private final ThreadFactory factory;
+    private final ExecutorService loops;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+
+    public VirtualThreadPool(String namePrefix) {
+        this.factory = Thread.ofVirtual().name(namePrefix, 0).factory();
+        this.loops = Executors.newCachedThreadPool(
+                Thread.ofPlatform().name(namePrefix + "loop-", 0).daemon(true).factory());
+    }
+
+    /**
+     * @return true for Jetty's acceptor and selector loops, which run on platform threads
+     */
+    static boolean isServerLoop(Class<?> taskClass) {
+        String name = taskClass.getName();
+        return name.equals(ACCEPTOR) || name.startsWith(SELECTOR);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (isServerLoop(task.getClass())) {
+            loops.execute(() -> {
+                running.add(Thread.currentThread());
+                try {
+                    task.run();
+                } finally {
+                    running.remove(Thread.currentThread());
+                }
+            });
+            return;
+        }
+        Thread thread = factory.newThread(() -> {
+            try {
+                task.run();
+            } finally {
+                running.remove(Thread.currentThread());
+            }
+        });
+        running.add(thread);
+        thread.start();
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        for (Thread thread : running) {
+            thread.join();
+        }
+    }
+
+    /**
+     * @return tasks currently running, server loops included
+     */
+    @Override
+    public int getThreads() {
+        return running.size();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
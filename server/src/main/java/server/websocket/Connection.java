@@ -1,21 +1,229 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage;
 
-import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 
-public class Connection {
+/**
+ * One visitor's websocket session and its outbound queue.
+ * <p>
+ * send() never blocks: messages are queued and written one at a time with
+ * Jetty's asynchronous sendString, the next write starting from the previous
+ * one's callback. A slow client therefore only backs up its own queue, which
+ * is bounded by the manager's queue limit and overflow policy.
+ * <p>
+ * A session only ever has one Connection writing to it. A connection that is
+ * no longer registered under a visitor keeps writing until its queue drains
+ * and then retires; one that is replaced on the same session hands its queue,
+ * and any write in flight, to its successor. A failed write closes the
+ * session and takes the connection out of the manager.
+ */
+public class Connection implements WriteCallback {
     public String visitorName;
     public Session session;
     public int gameID;
+    // asked on CONNECT for MOVE_APPLIED messages instead of a LOAD_GAME per move
+    public boolean deltaUpdates;
 
-    public Connection(String visitorName, Session session, int gameID) {
+    private final ConnectionManager owner;
+    // guarded by itself, as are writing, closed, registered and successor
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    private boolean writing;
+    private boolean closed;
+    // false once the manager no longer lists this connection under its visitor
+    private boolean registered = true;
+    // the connection that took over this session's queue
+    private Connection successor;
+
+    private record Outbound(String text, ServerMessage.ServerMessageType type) {
+    }
+
+    public Connection(String visitorName, Session session, int gameID, ConnectionManager owner) {
         this.visitorName = visitorName;
         this.session = session;
         this.gameID = gameID;
+        this.owner = owner;
+    }
+
+    /* a connection for replying to a session that isn't registered; it retires once its queue drains */
+    static Connection oneOff(String visitorName, Session session, ConnectionManager owner) {
+        Connection connection = new Connection(visitorName, session, -1, owner);
+        connection.registered = false;
+        return connection;
+    }
+
+    public void send(String msg) {
+        send(msg, ServerMessage.ServerMessageType.NOTIFICATION);
+    }
+
+    /**
+     * Queues a message for this connection
+     *
+     * @param msg  the JSON text to send
+     * @param type LOAD_GAME messages replace any older LOAD_GAME still queued,
+     *             since only the newest board matters
+     * @return false if the connection is closed or retired and the message was not queued
+     */
+    public boolean send(String msg, ServerMessage.ServerMessageType type) {
+        boolean disconnect = false;
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            if (type == ServerMessage.ServerMessageType.LOAD_GAME && removeFirst(ServerMessage.ServerMessageType.LOAD_GAME)) {
+                owner.coalesced.increment();
+            }
+            if (queue.size() >= owner.queueLimit) {
+                if (owner.overflow == ConnectionManager.Overflow.DISCONNECT) {
+                    disconnect = true;
+                    closed = true;
+                    queue.clear();
+                } else {
+                    // drop the oldest notification, keeping the board if that is all that is left
+                    if (!removeFirst(ServerMessage.ServerMessageType.NOTIFICATION)
+                            && !removeFirst(ServerMessage.ServerMessageType.ERROR)) {
+                        queue.pollFirst();
+                    }
+                    owner.dropped.increment();
+                }
+            }
+            if (!disconnect) {
+                queue.addLast(new Outbound(msg, type));
+                owner.recordDepth(queue.size());
+                if (writing) {
+                    return true;
+                }
+                writing = true;
+            }
+        }
+        if (disconnect) {
+            owner.disconnected.increment();
+            owner.released(this);
+            session.close(StatusCode.POLICY_VIOLATION, "Client is not keeping up");
+            return true;
+        }
+        writeNext();
+        return true;
+    }
+
+    /**
+     * Marks this connection as no longer listed under its visitor. Queued
+     * messages are still written; after that the connection retires.
+     */
+    void unregister() {
+        boolean retired;
+        synchronized (queue) {
+            registered = false;
+            retired = retireIfIdle();
+        }
+        if (retired) {
+            owner.released(this);
+        }
+    }
+
+    /**
+     * Takes over the queue of the session's previous connection before this one
+     * is published, so the session keeps a single writer. Must not be called
+     * once other threads can see this connection.
+     */
+    void takeOver(Connection previous) {
+        synchronized (previous.queue) {
+            if (previous.closed) {
+                return;
+            }
+            synchronized (queue) {
+                queue.addAll(previous.queue);
+                previous.queue.clear();
+                // the previous connection's in-flight write, if any, calls back into us
+                writing = previous.writing;
+                previous.successor = this;
+                previous.closed = true;
+            }
+        }
+    }
+
+    /**
+     * @return messages waiting to be written, not counting one in flight
+     */
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public void writeSuccess() {
+        owner.sent.increment();
+        writeNext();
+    }
+
+    @Override
+    public void writeFailed(Throwable x) {
+        Connection next;
+        synchronized (queue) {
+            next = successor;
+            closed = true;
+            writing = false;
+            queue.clear();
+        }
+        if (next != null) {
+            next.writeFailed(x);
+            return;
+        }
+        owner.writeFailed(this);
+    }
+
+    private void writeNext() {
+        Outbound next;
+        Connection handOff;
+        boolean retired = false;
+        synchronized (queue) {
+            handOff = successor;
+            next = handOff == null ? queue.pollFirst() : null;
+            if (next == null) {
+                writing = false;
+                retired = handOff == null && retireIfIdle();
+            }
+        }
+        if (handOff != null) {
+            // taken over mid-write; the successor carries on from here
+            handOff.writeNext();
+            return;
+        }
+        if (next == null) {
+            if (retired) {
+                owner.released(this);
+            }
+            return;
+        }
+        try {
+            session.getRemote().sendString(next.text(), this);
+        } catch (RuntimeException ex) {
+            // the session was closed under us
+            writeFailed(ex);
+        }
+    }
+
+    /* caller holds the queue lock */
+    private boolean retireIfIdle() {
+        if (registered || writing || closed) {
+            return false;
+        }
+        closed = true;
+        return true;
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    private boolean removeFirst(ServerMessage.ServerMessageType type) {
+        for (Iterator<Outbound> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().type() == type) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -1,32 +1,122 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 import websocket.messages.ServerMessage;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
+/**
+ * Open websocket connections, indexed both by visitor and by game so a
+ * broadcast only touches the sessions of the game it is about.
+ * <p>
+ * Each visitor has at most one connection; connecting again (to the same or
+ * another game) replaces the old one in both indexes.
+ * <p>
+ * Sends are queued per connection (see Connection), so a broadcast returns
+ * without waiting on any client. How far a connection may fall behind is set
+ * by system properties chess.websocket.queueLimit (messages, default 64) and
+ * chess.websocket.overflow: dropOldest (default) discards the oldest queued
+ * notification, disconnect closes the slow session.
+ * <p>
+ * Every write to a session, including replies to sessions that never
+ * registered, goes through that session's one Connection, so two writes never
+ * overlap on a session and all of them count towards the queue metrics.
+ */
 public class ConnectionManager {
+    public enum Overflow {
+        DROP_OLDEST,
+        DISCONNECT
+    }
+
     public final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Connection>> games = new ConcurrentHashMap<>();
+    // the connection writing to each session, registered or not; guarded by itself
+    private final Map<Session, Connection> sessions = new IdentityHashMap<>();
+
+    final int queueLimit;
+    final Overflow overflow;
+    final LongAdder sent = new LongAdder();
+    final LongAdder coalesced = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+    final LongAdder disconnected = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    public ConnectionManager() {
+        this(Integer.getInteger("chess.websocket.queueLimit", 64),
+                "disconnect".equalsIgnoreCase(System.getProperty("chess.websocket.overflow"))
+                        ? Overflow.DISCONNECT : Overflow.DROP_OLDEST);
+    }
+
+    public ConnectionManager(int queueLimit, Overflow overflow) {
+        if (queueLimit < 1) {
+            throw new IllegalArgumentException("queueLimit must be at least 1");
+        }
+        this.queueLimit = queueLimit;
+        this.overflow = overflow;
+    }
 
     public void add(String visitorName, Session session, int gameID) {
-        var connection = new Connection(visitorName, session, gameID);
-        connections.put(visitorName, connection);
+        add(visitorName, session, gameID, false);
+    }
+
+    public void add(String visitorName, Session session, int gameID, boolean deltaUpdates) {
+        var connection = new Connection(visitorName, session, gameID, this);
+        connection.deltaUpdates = deltaUpdates;
+        Connection sameSession;
+        synchronized (sessions) {
+            sameSession = sessions.put(session, connection);
+            if (sameSession != null) {
+                connection.takeOver(sameSession);
+            }
+        }
+        if (sameSession != null && connections.remove(sameSession.visitorName, sameSession)) {
+            unindex(sameSession);
+        }
+        // compute() runs atomically per key, so a concurrent removal can't drop the set we add to
+        games.compute(gameID, (id, members) -> {
+            if (members == null) {
+                members = ConcurrentHashMap.newKeySet();
+            }
+            members.add(connection);
+            return members;
+        });
+        var previous = connections.put(visitorName, connection);
+        if (previous != null && previous != sameSession) {
+            unindex(previous);
+            previous.unregister();
+        }
     }
 
     public void remove(String visitorName) {
-        connections.remove(visitorName);
+        var connection = connections.remove(visitorName);
+        if (connection != null) {
+            unindex(connection);
+            connection.unregister();
+        }
     }
 
-    public void broadcast(String excludeVisitorName, ServerMessage notification, int gameID) throws IOException {
+    /**
+     * @return the open connections watching a game, or an empty set
+     */
+    public Set<Connection> gameConnections(int gameID) {
+        return games.getOrDefault(gameID, Set.of());
+    }
+
+    public void broadcast(String excludeVisitorName, ServerMessage notification, int gameID) {
         var removeList = new ArrayList<Connection>();
-        for (var c : connections.values()) {
+        for (var c : gameConnections(gameID)) {
             if (c.session.isOpen()) {
                 if (!c.visitorName.equals(excludeVisitorName)) {
-                    if (c.gameID == gameID) {
-                        c.send(notification.getJsonFields());
-                    }
+                    c.send(notification.getJsonFields(), notification.getServerMessageType());
                 }
             } else {
                 removeList.add(c);
@@ -34,18 +124,34 @@ public class ConnectionManager {
         }
 
         // Clean up any connections that were left open.
-        for (var c : removeList) {
-            connections.remove(c.visitorName);
+        removeList.forEach(this::discard);
+    }
+
+    /**
+     * Sends one message to everyone in a game and to the root visitor, who
+     * gets it once even though they are in the game too
+     */
+    public void broadcastAll(String rootVisitorName, ServerMessage notification, int gameID) {
+        broadcast(null, notification, gameID);
+        var root = connections.get(rootVisitorName);
+        if (root != null && root.gameID != gameID) {
+            alertRoot(rootVisitorName, notification);
         }
     }
 
-    public void alertRoot(String rootVisitorName, ServerMessage notification) throws IOException {
+    /**
+     * Tells everyone in a game but one visitor about a move: connections that
+     * asked for deltas get the MOVE_APPLIED message, the rest a full snapshot
+     *
+     * @param snapshot builds the LOAD_GAME message; only called if some connection needs it
+     */
+    public void broadcastMove(String excludeVisitorName, ServerMessage delta, Supplier<ServerMessage> snapshot,
+                              int gameID) {
         var removeList = new ArrayList<Connection>();
-        for (var c : connections.values()) {
+        for (var c : gameConnections(gameID)) {
             if (c.session.isOpen()) {
-                // only send to visitorName
-                if (c.visitorName.equals(rootVisitorName)) {
-                    c.send(notification.getJsonFields());
+                if (!c.visitorName.equals(excludeVisitorName)) {
+                    sendMove(c, delta, snapshot);
                 }
             } else {
                 removeList.add(c);
@@ -53,9 +159,134 @@ public class ConnectionManager {
         }
 
         // Clean up any connections that were left open.
-        for (var c : removeList) {
-            connections.remove(c.visitorName);
+        removeList.forEach(this::discard);
+    }
+
+    public void alertRootMove(String rootVisitorName, ServerMessage delta, Supplier<ServerMessage> snapshot) {
+        var c = connections.get(rootVisitorName);
+        if (c == null) {
+            return;
+        }
+        if (c.session.isOpen()) {
+            sendMove(c, delta, snapshot);
+        } else {
+            discard(c);
+        }
+    }
+
+    private void sendMove(Connection c, ServerMessage delta, Supplier<ServerMessage> snapshot) {
+        var message = c.deltaUpdates ? delta : snapshot.get();
+        c.send(message.getJsonFields(), message.getServerMessageType());
+    }
+
+    public void alertRoot(String rootVisitorName, ServerMessage notification) {
+        var c = connections.get(rootVisitorName);
+        if (c == null) {
+            return;
+        }
+        if (c.session.isOpen()) {
+            // only send to visitorName
+            c.send(notification.getJsonFields(), notification.getServerMessageType());
+        } else {
+            discard(c);
         }
     }
 
+    /**
+     * Sends to one session through its connection's queue, so the message
+     * stays in order. A session without a connection, e.g. one whose CONNECT
+     * failed, gets a one-off connection that lasts until its queue drains.
+     */
+    public void sendTo(String visitorName, Session session, ServerMessage notification) {
+        // a second try covers a one-off connection that retired between lookup and send
+        for (int attempt = 0; attempt < 2 && session.isOpen(); attempt++) {
+            Connection c;
+            synchronized (sessions) {
+                c = sessions.computeIfAbsent(session, s -> Connection.oneOff(visitorName, s, this));
+            }
+            if (c.send(notification.getJsonFields(), notification.getServerMessageType())) {
+                return;
+            }
+            released(c);
+        }
+    }
+
+    /**
+     * @return messages queued across every connection, not counting writes in flight
+     */
+    public int getQueuedMessages() {
+        int total = 0;
+        for (var c : connections.values()) {
+            total += c.getQueueDepth();
+        }
+        return total;
+    }
+
+    /**
+     * @return the deepest any single connection's queue has been
+     */
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * @return LOAD_GAME messages replaced by a newer one before they were written
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getDisconnectedCount() {
+        return disconnected.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    void recordDepth(int depth) {
+        maxQueueDepth.accumulate(depth);
+    }
+
+    /* forgets a connection that has stopped writing to its session */
+    void released(Connection connection) {
+        synchronized (sessions) {
+            sessions.remove(connection.session, connection);
+        }
+    }
+
+    /* a write to the connection's session failed, so nothing more will reach it: stop routing to it and close the session */
+    void writeFailed(Connection connection) {
+        failed.increment();
+        discard(connection);
+        try {
+            connection.session.close(StatusCode.SERVER_ERROR, "Write failed");
+        } catch (RuntimeException ignored) {
+            // the session is already broken
+        }
+    }
+
+    /* removes a closed connection unless its visitor has already reconnected */
+    private void discard(Connection connection) {
+        connections.remove(connection.visitorName, connection);
+        unindex(connection);
+        connection.unregister();
+        // the session is closed, so nothing queued on it will drain
+        released(connection);
+    }
+
+    private void unindex(Connection connection) {
+        games.computeIfPresent(connection.gameID, (id, members) -> {
+            members.remove(connection);
+            return members.isEmpty() ? null : members;
+        });
+    }
 }
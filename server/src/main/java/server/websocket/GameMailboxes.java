@@ -0,0 +1,185 @@
+package server.websocket;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs websocket commands one game at a time: commands for the same game
+ * execute in the order they arrived, one after another, while commands for
+ * different games run in parallel on a shared executor.
+ * <p>
+ * Each game with pending work has a mailbox; the first command into an idle
+ * mailbox schedules a drain on the executor, which runs queued commands until
+ * the mailbox is empty and then removes it. A drain hands its thread back after
+ * BATCH_SIZE commands so one busy game can't hold a thread indefinitely. If
+ * the executor rejects a drain (e.g. it has been shut down), the mailbox is
+ * drained on the calling thread instead, so a mailbox marked draining always
+ * has a drain coming.
+ */
+public class GameMailboxes {
+    private static final int BATCH_SIZE = 32;
+
+    private final Executor executor;
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // only touched inside mailboxes.compute(), which locks the game's entry
+    private static class Mailbox {
+        final ArrayDeque<Runnable> commands = new ArrayDeque<>();
+        boolean draining;
+    }
+
+    /**
+     * Uses a pool of chess.gameMailbox.threads daemon threads (default: two per processor)
+     */
+    public GameMailboxes() {
+        this(Executors.newFixedThreadPool(
+                Integer.getInteger("chess.gameMailbox.threads", 2 * Runtime.getRuntime().availableProcessors()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "game-mailbox");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    public GameMailboxes(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a command behind any others for the same game
+     */
+    public void submit(int gameID, Runnable command) {
+        boolean[] schedule = new boolean[1];
+        pending.incrementAndGet();
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            mailbox.commands.addLast(command);
+            maxDepth.accumulate(mailbox.commands.size());
+            if (!mailbox.draining) {
+                mailbox.draining = true;
+                schedule[0] = true;
+            }
+            return mailbox;
+        });
+        if (schedule[0]) {
+            schedule(gameID);
+        }
+    }
+
+    private void schedule(int gameID) {
+        try {
+            executor.execute(() -> drain(gameID, false));
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            drain(gameID, true);
+        }
+    }
+
+    /* runs one batch of the game's commands, or all of them if untilEmpty, and schedules the rest */
+    private void drain(int gameID, boolean untilEmpty) {
+        boolean more = true;
+        try {
+            do {
+                more = runBatch(gameID);
+            } while (more && untilEmpty);
+        } finally {
+            // also reached when a command throws an Error, which would otherwise leave the mailbox stuck
+            if (more) {
+                schedule(gameID);
+            }
+        }
+    }
+
+    /* returns true if the mailbox still had commands after BATCH_SIZE of them ran */
+    private boolean runBatch(int gameID) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Runnable next = next(gameID);
+            if (next == null) {
+                return false;
+            }
+            pending.decrementAndGet();
+            try {
+                next.run();
+                completed.increment();
+            } catch (RuntimeException ex) {
+                // commands report their own errors; this only keeps the mailbox alive
+                failed.increment();
+            } catch (Error err) {
+                failed.increment();
+                throw err;
+            }
+        }
+        return true;
+    }
+
+    /* takes the next command, or removes the mailbox if it is empty */
+    private Runnable next(int gameID) {
+        Runnable[] next = new Runnable[1];
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            next[0] = mailbox.commands.pollFirst();
+            return next[0] == null ? null : mailbox;
+        });
+        return next[0];
+    }
+
+    /**
+     * @return commands waiting for one game, not counting one running
+     */
+    public int getDepth(int gameID) {
+        int[] depth = new int[1];
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            depth[0] = mailbox.commands.size();
+            return mailbox;
+        });
+        return depth[0];
+    }
+
+    /**
+     * @return commands waiting across every game
+     */
+    public int getPendingCommands() {
+        return pending.get();
+    }
+
+    /**
+     * @return games with commands queued or running
+     */
+    public int getActiveGames() {
+        return mailboxes.size();
+    }
+
+    /**
+     * @return the deepest any one game's mailbox has been
+     */
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return drains the executor refused, which ran on the submitting thread instead
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,59 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import com.google.gson.Gson;
+import model.ModifiedGameData;
+import websocket.messages.ServerMessage;
+
+import java.util.Map;
+
+/**
+ * Builds the messages the websocket handler sends. Each message's JSON is
+ * encoded once, here, and the resulting ServerMessage is then handed as-is to
+ * every connection it goes to, so a broadcast costs one encoding no matter how
+ * many sessions receive it.
+ */
+public class ServerMessages {
+    // Gson is thread-safe; building one per message re-resolves its type adapters every time
+    static final Gson GSON = new Gson();
+
+    public static ServerMessage notification(String visitorName, Integer gameID, String message) {
+        Map<String, Object> fields = gameID == null
+                ? Map.of("message", message, "visitorName", visitorName,
+                        "serverMessageType", ServerMessage.ServerMessageType.NOTIFICATION)
+                : Map.of("message", message, "visitorName", visitorName, "gameID", gameID,
+                        "serverMessageType", ServerMessage.ServerMessageType.NOTIFICATION);
+        return encode(visitorName, ServerMessage.ServerMessageType.NOTIFICATION, fields, message, null);
+    }
+
+    public static ServerMessage error(String visitorName, String message) {
+        Map<String, Object> fields = Map.of("errorMessage", message, "visitorName", visitorName,
+                "serverMessageType", ServerMessage.ServerMessageType.ERROR);
+        return encode(visitorName, ServerMessage.ServerMessageType.ERROR, fields, message, null);
+    }
+
+    public static ServerMessage loadGame(String visitorName, int gameID, ModifiedGameData game) {
+        Map<String, Object> fields = Map.of("visitorName", visitorName, "gameID", gameID,
+                "serverMessageType", ServerMessage.ServerMessageType.LOAD_GAME, "game", game);
+        return encode(visitorName, ServerMessage.ServerMessageType.LOAD_GAME, fields, null, game);
+    }
+
+    /**
+     * @param game   the game with the move already made
+     * @param status the status of the team now to move, as evaluated by the caller
+     */
+    public static ServerMessage moveApplied(String visitorName, int gameID, ChessMove move, ChessGame game,
+                                            ChessGame.GameStatus status) {
+        boolean over = status == ChessGame.GameStatus.CHECKMATE || status == ChessGame.GameStatus.STALEMATE;
+        Map<String, Object> fields = Map.of("visitorName", visitorName, "gameID", gameID,
+                "serverMessageType", ServerMessage.ServerMessageType.MOVE_APPLIED, "move", move,
+                "ply", game.getPly(), "status", status, "isOver", over ? 1 : 0);
+        return encode(visitorName, ServerMessage.ServerMessageType.MOVE_APPLIED, fields, null, null);
+    }
+
+    public static ServerMessage encode(String visitorName, ServerMessage.ServerMessageType type,
+                                       Map<String, Object> fields, String message, ModifiedGameData game) {
+        return new ServerMessage(visitorName, type, GSON.toJson(fields), message, game);
+    }
+}
@@ -2,11 +2,6 @@ package server.websocket;
 
 import chess.ChessGame;
 import chess.ChessMove;
-import chess.ChessPiece;
-import chess.ChessPosition;
-import com.google.gson.Gson;
-import dataaccess.DataAccess;
-import dataaccess.MySqlDataAccess;
 import model.ModifiedGameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
@@ -19,35 +14,77 @@ import websocket.messages.ServerMessage;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 @WebSocket
 public class WebSocketHandler {
     private final ConnectionManager connections = new ConnectionManager();
-    private final DataAccess dataAccess = new MySqlDataAccess();
-    private final Service service = new Service(dataAccess);
+    private final Service service;
+    private final GameMailboxes mailboxes;
+
+    /**
+     * @param service shared with the HTTP handlers so both see the same in-memory games
+     */
+    public WebSocketHandler(Service service) {
+        this(service, new GameMailboxes());
+    }
+
+    /**
+     * @param mailboxes runs each game's commands in order, one at a time
+     */
+    public WebSocketHandler(Service service, GameMailboxes mailboxes) {
+        this.service = service;
+        this.mailboxes = mailboxes;
+    }
+
+    public ConnectionManager getConnectionManager() {
+        return connections;
+    }
+
+    public GameMailboxes getGameMailboxes() {
+        return mailboxes;
+    }
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) throws IOException {
         String username = "";
         try {
-            UserGameCommand action = new Gson().fromJson(message, UserGameCommand.class);
+            UserGameCommand action = ServerMessages.GSON.fromJson(message, UserGameCommand.class);
             username = getAuth(action.getAuthToken());
+            if (action.getGameID() == null) {
+                throw new ServiceException("bad request");
+            }
+            // every command reads and writes its game, so a game's commands run one after another
+            String visitorName = username;
+            mailboxes.submit(action.getGameID(), () -> handle(visitorName, action, session));
+        } catch (UnauthorizedException ex) {
+            error(username,"Error: unauthorized", session);
+        } catch (Exception ex) {
+            error(username,"Error: " + ex.getMessage(), session);
+        }
+    }
+
+    private void handle(String username, UserGameCommand action, Session session) {
+        try {
             switch (action.getCommandType()) {
-                case CONNECT -> connect(username, action.getGameID(), action.getVisitorColor(), session);
+                case CONNECT -> connect(username, action.getGameID(), action.getVisitorColor(),
+                        action.wantsDeltaUpdates(), session);
                 case MAKE_MOVE -> makeMove(username, action.getGameID(), action.getMoveMade(), action.getMove(), session);
                 case LEAVE -> leave(username, action.getGameID(), action.getVisitorColor(), session);
                 case RESIGN -> resign(username, action.getGameID(), action.getVisitorColor(), session);
+                case SYNC -> sync(username, action.getGameID(), session);
             }
-        } catch (UnauthorizedException ex) {
-            error(username,"Error: unauthorized", session);
         } catch (Exception ex) {
-            error(username,"Error: " + ex.getMessage(), session);
+            error(username, "Error: " + ex.getMessage(), session);
         }
     }
 
-    private void connect(String visitorName, int gameID, String color, Session session) throws IOException {
+    private void connect(String visitorName, int gameID, String color, boolean deltaUpdates, Session session)
+            throws IOException {
         try {
-            connections.add(visitorName, session, gameID);
+            connections.add(visitorName, session, gameID, deltaUpdates);
             ServerMessage notification = getGameNotification(visitorName, gameID);
             // send LOAD_GAME message to root
             connections.alertRoot(visitorName, notification);
@@ -66,63 +103,133 @@ public class WebSocketHandler {
         }
     }
 
-    private void makeMove(String visitorName, int gameID, String[] moveMade, ChessMove move, Session session) throws IOException {
+    private void makeMove(String visitorName, int gameID, String[] moveMade, ChessMove move, Session session) {
         try {
-            ModifiedGameData game = getGame(gameID);
+            applyMove(visitorName, gameID, moveMade, move);
+        } catch (Exception ex) {
+            error(visitorName, ex.getMessage(), session);
+        }
+    }
+
+    /**
+     * Makes a move that arrived over HTTP. It runs in the game's mailbox like
+     * a MAKE_MOVE command, so it is ordered with them, and everyone connected
+     * to the game is told about it the same way.
+     *
+     * @throws ServiceException if the move is rejected
+     */
+    public void makeMove(String visitorName, int gameID, ChessMove move) throws ServiceException {
+        runInMailbox(gameID, () -> applyMove(visitorName, gameID, null, move));
+    }
+
+    /**
+     * Replaces a game with one a client uploaded to the deprecated
+     * /update-game. It runs in the game's mailbox so it can't land in the
+     * middle of, or out of order with, a move.
+     *
+     * @throws ServiceException if the caller isn't a player or the game is over
+     */
+    public void replaceGame(String visitorName, int gameID, ChessGame game) throws ServiceException {
+        runInMailbox(gameID, () -> service.updateMoves(visitorName, gameID, game));
+    }
+
+    /* a command run for an HTTP request */
+    private interface MailboxCommand {
+        void run() throws Exception;
+    }
+
+    /* runs a command in the game's mailbox and waits for it, rethrowing its failure */
+    private void runInMailbox(int gameID, MailboxCommand command) throws ServiceException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        mailboxes.submit(gameID, () -> {
+            try {
+                command.run();
+                done.complete(null);
+            } catch (Exception ex) {
+                done.completeExceptionally(ex);
+            }
+        });
+        try {
+            done.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Error: interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ServiceException serviceException) {
+                throw serviceException;
+            }
+            throw new ServiceException(ex.getCause().getMessage());
+        }
+    }
+
+    /* must run in the game's mailbox */
+    private void applyMove(String visitorName, int gameID, String[] moveMade, ChessMove move) throws Exception {
+        ModifiedGameData game;
+        if (move != null) {
+            // validated and applied by the server, promotion included
+            game = service.makeMove(visitorName, gameID, move);
+        } else {
+            // deprecated flow: the client already uploaded the whole game to /update-game
+            game = getGame(gameID);
             if (game.isOver() == 1) {
                 throw new UnauthorizedException(200, "Error: game is over. You cannot make any more moves.");
             }
-            if (move != null) {
-                ChessGame.TeamColor currColor = getCurrColor(visitorName, game);
-                ChessPosition startPosition = move.getStartPosition();
-                ChessPiece startPiece = game.game().getBoard().getPiece(new ChessPosition(startPosition.getRow(),
-                        startPosition.getColumn()));
-                if (startPiece != null) {
-                    if (startPiece.getTeamColor() != currColor) {
-                        throw new UnauthorizedException(200, "Error: You can't move that piece!");
-                    }
+        }
+        // the only side a move can check, mate or stalemate is the one now to move
+        ChessGame.TeamColor toMove = game.game().getTeamTurn();
+        ChessGame.GameStatus status = game.game().evaluateStatus(toMove);
+        ServerMessage delta = move == null ? null
+                : ServerMessages.moveApplied(visitorName, gameID, move, game.game(), status);
+        if (delta != null) {
+            // send MOVE_APPLIED, or LOAD_GAME to clients that did not ask for deltas, to root and everyone
+            ModifiedGameData moved = game;
+            ServerMessage[] snapshot = new ServerMessage[1];
+            Supplier<ServerMessage> loadGame = () -> {
+                if (snapshot[0] == null) {
+                    snapshot[0] = ServerMessages.loadGame(visitorName, gameID, moved);
                 }
-                // check if move is valid
-                game.game().makeMove(new ChessMove(move.getStartPosition(), move.getEndPosition(), null));
-                updateGameMoves(game.gameID(), game.game());
-            }
+                return snapshot[0];
+            };
+            connections.alertRootMove(visitorName, delta, loadGame);
+            connections.broadcastMove(visitorName, delta, loadGame, gameID);
+        } else {
             ServerMessage notification = getGameNotification(visitorName, gameID);
             // send LOAD_GAME message to root
             connections.alertRoot(visitorName, notification);
 
             // send LOAD_GAME message to everyone
             connections.broadcast(visitorName, notification, gameID);
+        }
 
-            // send move made notification
-            String notifyMessage;
-            if (moveMade != null) {
-                notifyMessage = String.format("%s made a move: %s to %s", visitorName, moveMade[0], moveMade[1]);
-            } else {
-                notifyMessage = String.format("%s made a move!", visitorName);
-            }
-            this.notification(visitorName, gameID, notifyMessage);
-
-            // check if game in check or checkmate
-            ChessGame.TeamColor color = game.game().getTeamTurn();
-            // use opposite color of current color
-            ChessGame.TeamColor oppositeColor;
-            if (color == ChessGame.TeamColor.WHITE) {
-                oppositeColor = ChessGame.TeamColor.BLACK;
-            } else {
-                oppositeColor = ChessGame.TeamColor.WHITE;
-            }
+        // send move made notification
+        String notifyMessage;
+        if (moveMade != null) {
+            notifyMessage = String.format("%s made a move: %s to %s", visitorName, moveMade[0], moveMade[1]);
+        } else {
+            notifyMessage = String.format("%s made a move!", visitorName);
+        }
+        this.notification(visitorName, gameID, notifyMessage);
 
-            if (game.game().isInCheckmate(oppositeColor)) {
-                sendToAll(visitorName, String.format("%s is in checkmate. Game is over.", oppositeColor), gameID);
+        switch (status) {
+            case CHECKMATE -> {
+                sendToAll(visitorName, String.format("%s is in checkmate. Game is over.", toMove), gameID);
                 markGameAsOver(gameID);
-            } else if (game.game().isInCheck(oppositeColor)) {
-                sendToAll(visitorName, String.format("%s is in check.", oppositeColor), gameID);
-            } else if (game.game().isInStalemate(oppositeColor)) {
+            }
+            case CHECK -> sendToAll(visitorName, String.format("%s is in check.", toMove), gameID);
+            case STALEMATE -> {
                 sendToAll(visitorName, "Game is in stalemate. Game is over.", gameID);
                 markGameAsOver(gameID);
             }
+            case IN_PROGRESS -> {
+            }
+        }
+    }
+
+    private void sync(String visitorName, int gameID, Session session) throws IOException {
+        try {
+            connections.sendTo(visitorName, session, getGameNotification(visitorName, gameID));
         } catch (Exception ex) {
-            error(visitorName, ex.getMessage(), session);
+            error(visitorName, "Error: Game not found", session);
         }
     }
 
@@ -157,10 +264,8 @@ public class WebSocketHandler {
 
             Map<String, Object> fields = Map.of(visitorName, visitorName, "gameID", gameID, "message", "You resigned from the game",
                     "serverMessageType", ServerMessage.ServerMessageType.NOTIFICATION);
-            var json = new Gson().toJson(fields);
-            ServerMessage notification = new ServerMessage(visitorName,
-                    ServerMessage.ServerMessageType.NOTIFICATION, json, "You resigned from the game.", null);
-            connections.alertRoot(visitorName, notification);
+            connections.alertRoot(visitorName, ServerMessages.encode(visitorName,
+                    ServerMessage.ServerMessageType.NOTIFICATION, fields, "You resigned from the game.", null));
 
             String notifyMessage = String.format("%s resigned from the game.", visitorName);
             this.notification(visitorName, gameID, notifyMessage);
@@ -170,24 +275,12 @@ public class WebSocketHandler {
     }
 
     private void notification(String visitorName, Integer gameID, String message) throws IOException {
-        Map<String, Object> fields = Map.of("message", message, "visitorName", visitorName, "gameID", gameID,
-                "serverMessageType", ServerMessage.ServerMessageType.NOTIFICATION);
-        var json = new Gson().toJson(fields);
-        ServerMessage notification = new ServerMessage(visitorName,
-                ServerMessage.ServerMessageType.NOTIFICATION, json, message, null);
-        connections.broadcast(visitorName, notification, gameID);
+        connections.broadcast(visitorName, ServerMessages.notification(visitorName, gameID, message), gameID);
     }
 
-    private void error(String username, String message, Session session) throws IOException {
-        Map<String, Object> fields = Map.of("errorMessage", message, "visitorName", username,
-                "serverMessageType", ServerMessage.ServerMessageType.ERROR);
-        var json = new Gson().toJson(fields);
-        ServerMessage notification = new ServerMessage(username,
-                ServerMessage.ServerMessageType.ERROR, json, message, null);
-        if (session.isOpen()) {
-            // only send to root
-            session.getRemote().sendString(notification.getJsonFields());
-        }
+    private void error(String username, String message, Session session) {
+        // only send to root
+        connections.sendTo(username, session, ServerMessages.error(username, message));
     }
 
     private String getAuth(String authToken) throws UnauthorizedException {
@@ -242,29 +335,10 @@ public class WebSocketHandler {
         }
     }
 
-    private void updateGameMoves(int gameID, ChessGame updatedGame) throws Exception {
-        var game = service.getGame(gameID);
-        if (game == null) {
-            throw new Exception();
-        } else {
-            try {
-                service.updateMoves(gameID, updatedGame);
-            } catch (Exception ex) {
-                throw new Exception();
-            }
-        }
-    }
-
     private ServerMessage getGameNotification(String visitorName, int gameID) throws Exception {
         try {
             // set chessGame for gameID
-            ModifiedGameData game = getGame(gameID);
-
-            Map<String, Object> fields = Map.of("visitorName", visitorName, "gameID", gameID,
-                    "serverMessageType", ServerMessage.ServerMessageType.LOAD_GAME, "game", game);
-            var json = new Gson().toJson(fields);
-            return new ServerMessage(visitorName,
-                    ServerMessage.ServerMessageType.LOAD_GAME, json, null, game);
+            return ServerMessages.loadGame(visitorName, gameID, getGame(gameID));
         } catch (Exception ex) {
             throw new Exception();
         }
@@ -272,13 +346,8 @@ public class WebSocketHandler {
 
     private void sendToAll(String visitorName, String message, int gameID) throws Exception {
         try {
-            Map<String, Object> fields = Map.of("message", message, "visitorName", visitorName,
-                    "serverMessageType", ServerMessage.ServerMessageType.NOTIFICATION);
-            var json = new Gson().toJson(fields);
-            ServerMessage notification = new ServerMessage(visitorName,
-                    ServerMessage.ServerMessageType.NOTIFICATION, json, message, null);
-            connections.broadcast(visitorName, notification, gameID);
-            connections.alertRoot(visitorName, notification);
+            // one message for the whole game, root included
+            connections.broadcastAll(visitorName, ServerMessages.notification(visitorName, null, message), gameID);
         } catch (Exception ex) {
             throw new Exception();
         }
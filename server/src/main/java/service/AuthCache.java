@@ -0,0 +1,158 @@
+package service;
+
+import model.AuthData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, thread-safe cache of auth tokens in front of DataAccess.getAuth.
+ * <p>
+ * Entries expire a fixed time after they were cached, so a token deleted
+ * behind the cache's back stops working within the TTL; logout and clear
+ * remove entries immediately. Like LegalMoveCache, the cache is split into
+ * LRU segments, each behind its own lock. Only tokens that exist are cached,
+ * so a token created after a failed lookup is found on the next one.
+ */
+public class AuthCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private record Entry(AuthData auth, long expiresAt) {
+    }
+
+    private class Segment extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public AuthCache() {
+        this(Integer.getInteger("chess.authCache.size", 10_000),
+                Long.getLong("chess.authCache.ttlMs", 300_000));
+    }
+
+    /**
+     * @param capacity  the most tokens to keep; least recently used tokens are evicted first
+     * @param ttlMillis how long a token stays cached after it was looked up in storage
+     */
+    public AuthCache(int capacity, long ttlMillis) {
+        this(capacity, ttlMillis, System::nanoTime);
+    }
+
+    AuthCache(int capacity, long ttlMillis, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+        int perSegment = Math.max(1, capacity / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * @return the cached auth for the token, or null if it isn't cached or has expired
+     */
+    public AuthData get(String authToken) {
+        Segment segment = segmentFor(authToken);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(authToken);
+            if (entry != null && clock.getAsLong() - entry.expiresAt() >= 0) {
+                segment.remove(authToken);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.auth();
+    }
+
+    public void put(AuthData auth) {
+        Segment segment = segmentFor(auth.authToken());
+        synchronized (segment) {
+            segment.put(auth.authToken(), new Entry(auth, clock.getAsLong() + ttlNanos));
+        }
+    }
+
+    public void invalidate(String authToken) {
+        Segment segment = segmentFor(authToken);
+        synchronized (segment) {
+            segment.remove(authToken);
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return hits / (hits + misses), or 0 if nothing has been looked up yet
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private Segment segmentFor(String authToken) {
+        // spread the hash so tokens that differ only in their high bits still land apart
+        int hash = authToken.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+}
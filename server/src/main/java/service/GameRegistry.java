@@ -0,0 +1,315 @@
+package service;
+
+import chess.ChessGame;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import model.ModifiedGameData;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps active games in memory as the source of truth between moves.
+ * <p>
+ * A game is loaded from storage the first time it is asked for and served from
+ * memory after that. Board updates only mark the game dirty; a background task
+ * writes dirty games to storage every flush interval (write-behind), so a move
+ * costs no database round trip. A game stays dirty until its write succeeds,
+ * so a failed write is retried on the next run. Games nobody has touched for
+ * the idle timeout are written out if needed and dropped from memory; a game
+ * whose write fails stays in memory. Player and game-over
+ * changes are rare and are written through to storage immediately.
+ */
+public class GameRegistry implements AutoCloseable {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-registry-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DataAccess dataAccess;
+    private final long idleTimeoutNanos;
+    private final ConcurrentHashMap<Integer, LiveGame> games = new ConcurrentHashMap<>();
+    // games with a board update that hasn't been written to storage yet
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledFuture<?> writer;
+    // held while writing to storage so an older copy of a game can't land after a newer one
+    private final Object writeLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /* the live copy of one game; fields are guarded by the object's lock */
+    private static class LiveGame {
+        final int gameID;
+        final String gameName;
+        String whiteUsername;
+        String blackUsername;
+        ChessGame game;
+        int isOver;
+        // copy of the board taken at the last update, waiting to be written
+        ChessGame pendingWrite;
+        boolean evicted;
+        volatile long lastAccess = System.nanoTime();
+
+        LiveGame(ModifiedGameData data) {
+            this.gameID = data.gameID();
+            this.gameName = data.gameName();
+            this.whiteUsername = data.whiteUsername();
+            this.blackUsername = data.blackUsername();
+            this.game = data.game();
+            this.isOver = data.isOver();
+        }
+
+        synchronized ModifiedGameData snapshot() {
+            return new ModifiedGameData(gameID, whiteUsername, blackUsername, gameName, game, isOver);
+        }
+    }
+
+    public GameRegistry(DataAccess dataAccess) {
+        this(dataAccess, Long.getLong("chess.gameRegistry.flushIntervalMs", 100),
+                Long.getLong("chess.gameRegistry.idleTimeoutMs", 600_000));
+    }
+
+    /**
+     * @param dataAccess        the storage games are loaded from and written back to
+     * @param flushIntervalMs   how often dirty games are written to storage
+     * @param idleTimeoutMillis how long a game may go untouched before it is dropped from memory
+     */
+    public GameRegistry(DataAccess dataAccess, long flushIntervalMs, long idleTimeoutMillis) {
+        this.dataAccess = dataAccess;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.writer = SCHEDULER.scheduleWithFixedDelay(this::writeBehind, flushIntervalMs, flushIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the game, loading it from storage if it isn't in memory, or null
+     * if it doesn't exist. The ChessGame in the result is the live instance;
+     * pass it to updateGame after changing it.
+     */
+    public ModifiedGameData getGame(int gameID) {
+        LiveGame live = live(gameID);
+        return live == null ? null : live.snapshot();
+    }
+
+    /**
+     * Replaces a game's board. The change is visible immediately and written
+     * to storage on the next flush.
+     */
+    public void updateGame(int gameID, ChessGame game) {
+        // a second try is enough: a game loaded again after an eviction is freshly touched
+        for (int attempt = 0; attempt < 2; attempt++) {
+            LiveGame live = live(gameID);
+            if (live == null) {
+                // nothing to update, e.g. storage was cleared; writing would leave rows with no game
+                return;
+            }
+            synchronized (live) {
+                if (!live.evicted) {
+                    live.game = game;
+                    // copy now, on the thread that changed the game, so the writer never sees it mid-move
+                    live.pendingWrite = new ChessGame(game);
+                    dirty.add(gameID);
+                    return;
+                }
+            }
+            // evictIdle holds the write lock until the evicted copy is written, so the reload sees it
+            synchronized (writeLock) {
+                synchronized (live) {
+                    if (live.evicted) {
+                        games.remove(gameID, live);
+                    }
+                }
+            }
+        }
+        synchronized (writeLock) {
+            try {
+                dataAccess.updateGameMoves(gameID, game);
+            } catch (DataAccessException ex) {
+                System.out.printf("Error writing game %d: %s%n", gameID, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a player change through to storage and to the cached game
+     *
+     * @param playerColor "WHITE" or "BLACK"
+     * @param username    the new player, or null to empty the seat
+     */
+    public void updatePlayer(int gameID, String playerColor, String username) {
+        dataAccess.updateGame(gameID, playerColor, username);
+        LiveGame live = games.get(gameID);
+        if (live != null) {
+            synchronized (live) {
+                if (Objects.equals(playerColor, "WHITE")) {
+                    live.whiteUsername = username;
+                } else {
+                    live.blackUsername = username;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the game-over flag through to storage and to the cached game
+     */
+    public void markGameAsOver(int gameID) {
+        dataAccess.markGameAsOver(gameID);
+        LiveGame live = games.get(gameID);
+        if (live != null) {
+            synchronized (live) {
+                live.isOver = 1;
+            }
+        }
+    }
+
+    /**
+     * Writes every dirty game to storage now
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            for (Integer gameID : dirty) {
+                LiveGame live = games.get(gameID);
+                if (live != null) {
+                    persist(live);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every game from memory without writing pending updates, then
+     * clears storage. Holds the write lock throughout, so a write already under
+     * way finishes before storage is emptied and none starts until it is; a
+     * late write could otherwise land on a game that reuses a cleared id.
+     */
+    public void clear() {
+        synchronized (writeLock) {
+            games.clear();
+            dirty.clear();
+            dataAccess.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.cancel(false);
+        flush();
+    }
+
+    private LiveGame live(int gameID) {
+        LiveGame live = games.get(gameID);
+        if (live != null) {
+            hits.increment();
+        } else {
+            live = games.computeIfAbsent(gameID, id -> {
+                loads.increment();
+                ModifiedGameData data = dataAccess.getGame(id);
+                return data == null ? null : new LiveGame(data);
+            });
+        }
+        if (live != null) {
+            live.lastAccess = System.nanoTime();
+        }
+        return live;
+    }
+
+    private void writeBehind() {
+        try {
+            flush();
+            evictIdle();
+        } catch (RuntimeException ex) {
+            // keep the writer scheduled; dirty games are retried on the next run
+            System.out.printf("Error writing games: %s%n", ex.getMessage());
+        }
+    }
+
+    /**
+     * Writes out and drops every game untouched for longer than the idle timeout
+     */
+    void evictIdle() {
+        long now = System.nanoTime();
+        synchronized (writeLock) {
+            for (LiveGame live : games.values()) {
+                if (now - live.lastAccess > idleTimeoutNanos) {
+                    synchronized (live) {
+                        live.evicted = true;
+                    }
+                    if (persist(live)) {
+                        games.remove(live.gameID, live);
+                        evictions.increment();
+                    } else {
+                        // keep the only up-to-date copy in memory until it can be written
+                        synchronized (live) {
+                            live.evicted = false;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* writes the game's pending board; returns false, leaving it dirty, if storage rejected it */
+    private boolean persist(LiveGame live) {
+        ChessGame toWrite;
+        synchronized (live) {
+            toWrite = live.pendingWrite;
+            if (toWrite == null) {
+                dirty.remove(live.gameID);
+                return true;
+            }
+        }
+        try {
+            dataAccess.updateGameMoves(live.gameID, toWrite);
+        } catch (DataAccessException | RuntimeException ex) {
+            System.out.printf("Error writing game %d: %s%n", live.gameID, ex.getMessage());
+            return false;
+        }
+        writes.increment();
+        synchronized (live) {
+            // a newer board that arrived during the write stays dirty for the next run
+            if (live.pendingWrite == toWrite) {
+                live.pendingWrite = null;
+                dirty.remove(live.gameID);
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return games.size();
+    }
+
+    public int getDirtyGames() {
+        return dirty.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of times a game had to be read from storage
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
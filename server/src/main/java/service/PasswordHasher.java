@@ -0,0 +1,212 @@
+package service;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt hashing and verification on a small dedicated pool.
+ * <p>
+ * The request thread still blocks in {@link #hash} and {@link #verify} until
+ * its result is ready or the timeout passes; what the pool changes is how
+ * many hashes burn CPU at once. BCrypt is deliberately slow, so a burst of
+ * logins hashed inline would run one hash per web server thread and starve
+ * unrelated requests of CPU. Here at most
+ * {@code threads} hashes run at once and at most {@code queueLimit} wait;
+ * anything beyond that fails straight away with "Error: server busy", which
+ * the server reports as 503 so clients can retry. A hash whose caller has
+ * stopped waiting for it is taken out of the queue, or skipped if a thread
+ * has already picked it up, so requests already answered with 503 don't keep
+ * the pool busy.
+ */
+public class PasswordHasher implements AutoCloseable {
+    private final ThreadPoolExecutor executor;
+    private final int cost;
+    private final long timeoutMillis;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private volatile long maxLatencyNanos;
+
+    public PasswordHasher() {
+        this(Integer.getInteger("chess.passwordHasher.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("chess.passwordHasher.queueLimit", 64),
+                Integer.getInteger("chess.passwordHasher.cost", 10),
+                Long.getLong("chess.passwordHasher.timeoutMs", 10_000));
+    }
+
+    /**
+     * @param threads       hashes that may run at once
+     * @param queueLimit    hashes that may wait for a thread before new ones are refused
+     * @param cost          BCrypt log2 work factor for new hashes (4-31)
+     * @param timeoutMillis how long a caller waits for its result
+     */
+    public PasswordHasher(int threads, int queueLimit, int cost, long timeoutMillis) {
+        if (cost < 4 || cost > 31) {
+            throw new IllegalArgumentException("BCrypt cost must be between 4 and 31");
+        }
+        this.cost = cost;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @return a future BCrypt hash of the password
+     * @throws ServiceException if too many hashes are already waiting
+     */
+    public CompletableFuture<String> hashAsync(String password) throws ServiceException {
+        return submit(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    /**
+     * @return a future that is true if the password matches the hash
+     * @throws ServiceException if too many hashes are already waiting
+     */
+    public CompletableFuture<Boolean> verifyAsync(String password, String hash) throws ServiceException {
+        return submit(() -> BCrypt.checkpw(password, hash));
+    }
+
+    /**
+     * Hashes a password, blocking the calling thread until a hashing thread
+     * has produced the result
+     *
+     * @throws ServiceException if the pool is overloaded or the result takes too long
+     */
+    public String hash(String password) throws ServiceException {
+        return await(hashAsync(password));
+    }
+
+    /**
+     * Checks a password against a hash, blocking the calling thread until a
+     * hashing thread has produced the result
+     *
+     * @throws ServiceException if the pool is overloaded or the result takes too long
+     */
+    public boolean verify(String password, String hash) throws ServiceException {
+        return await(verifyAsync(password, hash));
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> work) throws ServiceException {
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            if (result.isDone()) {
+                // cancelled between leaving the queue and starting
+                return;
+            }
+            T value;
+            try {
+                value = work.call();
+            } catch (Exception ex) {
+                recordLatency(System.nanoTime() - queuedAt);
+                result.completeExceptionally(ex);
+                return;
+            }
+            // record before completing so a caller that reads the metrics sees its own request
+            recordLatency(System.nanoTime() - queuedAt);
+            result.complete(value);
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new ServiceException(ServiceException.BUSY_MESSAGE);
+        }
+        result.whenComplete((value, ex) -> {
+            if (result.isCancelled()) {
+                cancelled.increment();
+                // frees the queue slot now; a task already running can't be stopped mid-hash
+                executor.remove(task);
+            }
+        });
+        return result;
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws ServiceException {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(false);
+            throw new ServiceException(ServiceException.BUSY_MESSAGE);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(ServiceException.BUSY_MESSAGE);
+        } catch (ExecutionException ex) {
+            // e.g. a malformed stored hash
+            throw new ServiceException("Error: " + ex.getCause().getMessage());
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        completed.increment();
+        latencyNanos.add(nanos);
+        if (nanos > maxLatencyNanos) {
+            synchronized (this) {
+                maxLatencyNanos = Math.max(maxLatencyNanos, nanos);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return hashes waiting for a free thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return hashes refused because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return hashes whose caller gave up on them, e.g. after timing out
+     */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return mean time from submitting a hash to its result, queueing included
+     */
+    public double getAverageLatencyMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0.0 : latencyNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1_000_000.0;
+    }
+}
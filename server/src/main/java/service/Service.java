@@ -1,9 +1,11 @@
 package service;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.InvalidMoveException;
 import dataaccess.DataAccess;
 import model.*;
-import org.mindrot.jbcrypt.BCrypt;
 import server.UnauthorizedException;
 
 import java.util.Collection;
@@ -11,12 +13,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
-public class Service {
+public class Service implements AutoCloseable {
     // write clear() first to pass TA tests
     private final DataAccess dataAccess;
+    private final GameRegistry games;
+    private final AuthCache authCache = new AuthCache();
+    private final PasswordHasher passwordHasher;
 
     public Service(DataAccess dataAccess) {
+        this(dataAccess, new PasswordHasher());
+    }
+
+    public Service(DataAccess dataAccess, PasswordHasher passwordHasher) {
         this.dataAccess = dataAccess;
+        this.passwordHasher = passwordHasher;
+        this.games = new GameRegistry(dataAccess);
     }
 
     public AuthData registerUser(UserData newUser) throws ServiceException {
@@ -26,8 +37,10 @@ public class Service {
         if (dataAccess.getUser(newUser.username()) != null) {
             throw new ServiceException("Error: already taken");
         } else {
-            UserData user = dataAccess.createUser(newUser);
-            return dataAccess.createAuth(user.username());
+            // the password is hashed on the bounded hashing pool and stored as given by dataAccess
+            String hash = passwordHasher.hash(newUser.password());
+            UserData user = dataAccess.createUser(new UserData(newUser.username(), hash, newUser.email()));
+            return cacheAuth(dataAccess.createAuth(user.username()));
         }
     }
 
@@ -39,8 +52,8 @@ public class Service {
         if (user == null) {
             throw new ServiceException("Error: unauthorized");
         } else {
-            if (BCrypt.checkpw(password, user.password())) {
-                return dataAccess.createAuth(username);
+            if (passwordHasher.verify(password, user.password())) {
+                return cacheAuth(dataAccess.createAuth(username));
             } else {
                 throw new ServiceException("Error: unauthorized");
             }
@@ -51,7 +64,7 @@ public class Service {
         if (authToken == null) {
             throw new ServiceException("Error: bad request");
         }
-        AuthData auth = dataAccess.getAuth(authToken);
+        AuthData auth = authenticate(authToken);
         if (auth == null) {
             throw new ServiceException("Error: unauthorized");
         } else {
@@ -59,6 +72,8 @@ public class Service {
                 dataAccess.deleteAuth(authToken);
             } catch (Exception ex) {
                 throw new ServiceException("Error: bad request");
+            } finally {
+                authCache.invalidate(authToken);
             }
         }
     }
@@ -67,10 +82,12 @@ public class Service {
         if (authToken == null) {
             throw new ServiceException("Error: bad request");
         }
-        AuthData auth = dataAccess.getAuth(authToken);
+        AuthData auth = authenticate(authToken);
         if (auth == null) {
             throw new ServiceException("Error: unauthorized");
         } else {
+            // the listing includes boards, so write out any moves still waiting in memory
+            games.flush();
             return dataAccess.listGames();
         }
     }
@@ -79,7 +96,7 @@ public class Service {
         if (gameName == null) {
             throw new ServiceException("Error: bad request");
         }
-        AuthData auth = dataAccess.getAuth(authToken);
+        AuthData auth = authenticate(authToken);
         if (auth == null) {
             throw new ServiceException("Error: unauthorized");
         } else {
@@ -91,11 +108,11 @@ public class Service {
         if (authToken == null || playerColor == null || gameID <= 0 ) {
             throw new ServiceException("Error: bad request");
         }
-        AuthData auth = dataAccess.getAuth(authToken);
+        AuthData auth = authenticate(authToken);
         if (auth == null) {
             throw new ServiceException("Error: unauthorized");
         } else {
-            ModifiedGameData game = dataAccess.getGame(gameID);
+            ModifiedGameData game = games.getGame(gameID);
             if (game == null) {
                 throw new ServiceException("Error: bad request");
             }
@@ -104,16 +121,18 @@ public class Service {
                     playerColor.equals("WHITE") && game.whiteUsername() != null) {
                 throw new ServiceException("Error: already taken");
             }
-            dataAccess.updateGame(gameID, playerColor, auth.username());
+            games.updatePlayer(gameID, playerColor, auth.username());
         }
     }
 
     public void clear() throws ServiceException {
-        dataAccess.clear();
+        authCache.clear();
+        // clears storage too, once no game write is in flight
+        games.clear();
     }
 
     public String getAuth(String authToken) {
-        AuthData auth = dataAccess.getAuth(authToken);
+        AuthData auth = authenticate(authToken);
         if (auth == null) {
             return null;
         } else {
@@ -122,19 +141,135 @@ public class Service {
     }
 
     public ModifiedGameData getGame(int gameID) {
-        return dataAccess.getGame(gameID);
+        return games.getGame(gameID);
     }
 
     public void removeGamePlayer(int gameID, String colorToRemove) {
         // replace color username with null
-        dataAccess.updateGame(gameID, colorToRemove, null);
+        games.updatePlayer(gameID, colorToRemove, null);
     }
 
     public void markGameAsOver(int gameID) {
-        dataAccess.markGameAsOver(gameID);
+        games.markGameAsOver(gameID);
+    }
+
+    /**
+     * Replaces a game's board with one a client built itself (the deprecated
+     * upload flow). Like makeMove, it must not run concurrently with other
+     * changes to the game; the websocket handler runs it in the game's mailbox.
+     *
+     * @param username the player uploading the game
+     */
+    public void updateMoves(String username, int gameID, ChessGame game) throws ServiceException {
+        if (game == null || game.getBoard() == null) {
+            throw new ServiceException("Error: bad request");
+        }
+        ModifiedGameData stored = games.getGame(gameID);
+        if (stored == null) {
+            throw new ServiceException("Error: Game does not exist");
+        }
+        if (stored.isOver() == 1) {
+            throw new ServiceException("Error: game is over. You cannot make any more moves.");
+        }
+        if (!username.equals(stored.whiteUsername()) && !username.equals(stored.blackUsername())) {
+            throw new ServiceException("Error: you are not a player in the game.");
+        }
+        games.updateGame(gameID, game);
+    }
+
+    /**
+     * Validates a move against the stored game and applies it, including its
+     * promotion piece. Moves for one game must not be made concurrently; the
+     * websocket handler runs them through the game's mailbox.
+     *
+     * @param username the player making the move
+     * @return the game after the move
+     */
+    public ModifiedGameData makeMove(String username, int gameID, ChessMove move) throws ServiceException {
+        if (move == null || move.getStartPosition() == null || move.getEndPosition() == null) {
+            throw new ServiceException("Error: bad request");
+        }
+        ModifiedGameData game = games.getGame(gameID);
+        if (game == null) {
+            throw new ServiceException("Error: Game does not exist");
+        }
+        if (game.isOver() == 1) {
+            throw new ServiceException("Error: game is over. You cannot make any more moves.");
+        }
+        ChessGame.TeamColor color;
+        if (username.equals(game.whiteUsername())) {
+            color = ChessGame.TeamColor.WHITE;
+        } else if (username.equals(game.blackUsername())) {
+            color = ChessGame.TeamColor.BLACK;
+        } else {
+            throw new ServiceException("Error: you are not a player in the game.");
+        }
+        ChessPiece piece = game.game().getBoard().getPiece(move.getStartPosition());
+        if (piece != null && piece.getTeamColor() != color) {
+            throw new ServiceException("Error: You can't move that piece!");
+        }
+        try {
+            game.game().makeMove(move);
+        } catch (InvalidMoveException ex) {
+            throw new ServiceException(ex.getMessage());
+        }
+        games.updateGame(gameID, game.game());
+        return game;
     }
 
-    public void updateMoves(int gameID, ChessGame game) {
-        dataAccess.updateGameMoves(gameID, game);
+    /* looks the token up in the cache first, then in storage */
+    private AuthData authenticate(String authToken) {
+        if (authToken == null) {
+            return null;
+        }
+        AuthData auth = authCache.get(authToken);
+        if (auth == null) {
+            auth = dataAccess.getAuth(authToken);
+            if (auth != null) {
+                authCache.put(auth);
+            }
+        }
+        return auth;
+    }
+
+    private AuthData cacheAuth(AuthData auth) {
+        if (auth != null) {
+            authCache.put(auth);
+        }
+        return auth;
+    }
+
+    /**
+     * @return the password hashing pool, for reading its metrics
+     */
+    public PasswordHasher getPasswordHasher() {
+        return passwordHasher;
+    }
+
+    /**
+     * @return the auth token cache, for reading its metrics
+     */
+    public AuthCache getAuthCache() {
+        return authCache;
+    }
+
+    /**
+     * @return the in-memory registry of active games, for reading its metrics
+     */
+    public GameRegistry getGameRegistry() {
+        return games;
+    }
+
+    /**
+     * Stops the game write-behind task after writing out every dirty game,
+     * then shuts down the password hashing pool
+     */
+    @Override
+    public void close() {
+        try {
+            games.close();
+        } finally {
+            passwordHasher.close();
+        }
     }
 }
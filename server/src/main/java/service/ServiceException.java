@@ -1,6 +1,9 @@
 package service;
 
 public class ServiceException extends Exception {
+    // the server answers this with 503 so clients know to retry
+    public static final String BUSY_MESSAGE = "Error: server busy";
+
     public ServiceException(String message) {
         super(message);
     }
@@ -0,0 +1,229 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ConnectionPoolTests {
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    /* stands in for a physical connection so the pool can be tested without a database */
+    private static class FakeConnection {
+        boolean valid = true;
+        boolean closed = false;
+        boolean autoCommit = true;
+        int rollbacks = 0;
+    }
+
+    private Connection openFake() {
+        FakeConnection fake = new FakeConnection();
+        opened.add(fake);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isValid" -> fake.valid && !fake.closed;
+                    case "isClosed" -> fake.closed;
+                    case "close" -> {
+                        fake.closed = true;
+                        yield null;
+                    }
+                    case "getAutoCommit" -> fake.autoCommit;
+                    case "setAutoCommit" -> {
+                        fake.autoCommit = (Boolean) args[0];
+                        yield null;
+                    }
+                    case "rollback" -> {
+                        fake.rollbacks++;
+                        yield null;
+                    }
+                    // a statement that, like a driver's, reports the physical connection
+                    case "createStatement", "prepareStatement" -> Proxy.newProxyInstance(
+                            Connection.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                            (statement, statementMethod, statementArgs) ->
+                                    statementMethod.getName().equals("getConnection") ? proxy : null);
+                    default -> null;
+                });
+    }
+
+    private ConnectionPool createPool(int minSize, int maxSize, long idleTimeoutMillis) {
+        return createPool(this::openFake, minSize, maxSize, idleTimeoutMillis);
+    }
+
+    private ConnectionPool createPool(ConnectionPool.ConnectionFactory factory, int minSize, int maxSize,
+                                      long idleTimeoutMillis) {
+        return new ConnectionPool(factory, new ConnectionPool.Settings(minSize, maxSize, idleTimeoutMillis, 100, 1));
+    }
+
+    /* opens fakes only once the latch is released, so a connection can be held mid-open */
+    private ConnectionPool.ConnectionFactory openAfter(CountDownLatch latch) {
+        return () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return openFake();
+        };
+    }
+
+    @AfterEach
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void positiveReusesReturnedConnection() throws SQLException {
+        pool = createPool(0, 2, 60_000);
+        try (var conn = pool.borrow()) {
+            Assertions.assertFalse(conn.isClosed());
+            Assertions.assertEquals(1, pool.getActiveConnections());
+        }
+        try (var conn = pool.borrow()) {
+            Assertions.assertNotNull(conn);
+        }
+        Assertions.assertEquals(1, opened.size());
+        Assertions.assertFalse(opened.get(0).closed);
+        Assertions.assertEquals(0, pool.getActiveConnections());
+        Assertions.assertEquals(1, pool.getIdleConnections());
+        Assertions.assertEquals(2, pool.getBorrowCount());
+    }
+
+    @Test
+    public void negativeBorrowTimesOutAtMaxSize() throws SQLException {
+        pool = createPool(0, 1, 60_000);
+        try (var held = pool.borrow()) {
+            Assertions.assertThrows(SQLTimeoutException.class, () -> pool.borrow());
+            Assertions.assertEquals(1, pool.getTimeoutCount());
+            Assertions.assertNotNull(held);
+        }
+        Assertions.assertEquals(1, opened.size());
+    }
+
+    @Test
+    public void negativeReturnedConnectionIsUnusable() throws SQLException {
+        pool = createPool(0, 1, 60_000);
+        var conn = pool.borrow();
+        conn.close();
+        conn.close();
+        Assertions.assertTrue(conn.isClosed());
+        Assertions.assertThrows(SQLException.class, conn::createStatement);
+        Assertions.assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    public void positiveRollsBackOpenTransactionOnReturn() throws SQLException {
+        pool = createPool(0, 1, 60_000);
+        try (var conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+        }
+        Assertions.assertEquals(1, opened.get(0).rollbacks);
+        Assertions.assertTrue(opened.get(0).autoCommit);
+    }
+
+    @Test
+    public void positiveDiscardsInvalidIdleConnection() throws SQLException, InterruptedException {
+        pool = createPool(0, 1, 60_000);
+        pool.borrow().close();
+        opened.get(0).valid = false;
+        // wait out the window in which recently returned connections skip validation
+        Thread.sleep(600);
+        try (var conn = pool.borrow()) {
+            Assertions.assertNotNull(conn);
+        }
+        Assertions.assertEquals(2, opened.size());
+        Assertions.assertTrue(opened.get(0).closed);
+        Assertions.assertEquals(1, pool.getTotalConnections());
+    }
+
+    @Test
+    public void positiveHousekeepingEvictsDownToMinSize() throws SQLException {
+        pool = createPool(1, 3, 0);
+        var first = pool.borrow();
+        var second = pool.borrow();
+        var third = pool.borrow();
+        first.close();
+        second.close();
+        third.close();
+        Assertions.assertEquals(3, pool.getIdleConnections());
+
+        pool.housekeep();
+        Assertions.assertEquals(1, pool.getTotalConnections());
+        Assertions.assertEquals(2, pool.getEvictionCount());
+    }
+
+    @Test
+    public void positiveHousekeepingFillsToMinSize() {
+        pool = createPool(2, 4, 60_000);
+        pool.housekeep();
+        Assertions.assertEquals(2, pool.getIdleConnections());
+        Assertions.assertEquals(2, opened.size());
+    }
+
+    @Test
+    public void positiveStatementReportsPooledConnection() throws SQLException {
+        pool = createPool(0, 1, 60_000);
+        try (var conn = pool.borrow()) {
+            Assertions.assertSame(conn, conn.createStatement().getConnection());
+            Assertions.assertSame(conn, conn.prepareStatement("SELECT 1").getConnection());
+        }
+        // closing through the statement's connection must not close the physical one
+        var conn = pool.borrow();
+        conn.createStatement().getConnection().close();
+        Assertions.assertFalse(opened.get(0).closed);
+        Assertions.assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    public void positiveBorrowWaitsForConnectionBeingOpened() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        pool = createPool(openAfter(latch), 1, 1, 60_000);
+        // the housekeeper holds the only slot while its connection opens
+        Thread housekeeper = new Thread(pool::housekeep);
+        housekeeper.start();
+        while (pool.getTotalConnections() == 0) {
+            Thread.onSpinWait();
+        }
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException ignored) {
+                // release straight away
+            }
+            latch.countDown();
+        }).start();
+        try (var conn = pool.borrow()) {
+            Assertions.assertNotNull(conn);
+        }
+        housekeeper.join();
+        Assertions.assertEquals(1, opened.size());
+        Assertions.assertEquals(1, pool.getTotalConnections());
+    }
+
+    @Test
+    public void negativeBorrowTimesOutWhileConnectionIsOpened() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        pool = createPool(openAfter(latch), 1, 1, 60_000);
+        Thread housekeeper = new Thread(pool::housekeep);
+        housekeeper.start();
+        while (pool.getTotalConnections() == 0) {
+            Thread.onSpinWait();
+        }
+
+        try {
+            Assertions.assertThrows(SQLTimeoutException.class, () -> pool.borrow());
+            Assertions.assertEquals(1, pool.getTimeoutCount());
+        } finally {
+            latch.countDown();
+            housekeeper.join();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dataaccess;
+
+import model.UserData;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class LimitedDataAccessTests {
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /* a getUser that holds its caller until the test releases it */
+    private final DataAccess slow = new MemoryDataAccess() {
+        @Override
+        public UserData getUser(String userName) {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getUser(userName);
+        }
+    };
+
+    @Test
+    public void positivePassesCallsThrough() throws DataAccessException {
+        LimitedDataAccess limited = new LimitedDataAccess(new MemoryDataAccess(), 2, 1000);
+        limited.createUser(new UserData("user", "hash", "email"));
+
+        Assertions.assertEquals("hash", limited.getUser("user").password());
+        limited.deleteAuth("missing");
+        Assertions.assertEquals(3, limited.getCallCount());
+        Assertions.assertEquals(0, limited.getActiveCalls());
+    }
+
+    @Test
+    public void negativeWaitsThenRejects() throws Exception {
+        LimitedDataAccess limited = new LimitedDataAccess(slow, 1, 50);
+        Thread holder = Thread.ofVirtual().start(() -> limited.getUser("user"));
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, limited.getActiveCalls());
+
+        IllegalStateException ex = Assertions.assertThrows(IllegalStateException.class,
+                () -> limited.listGames());
+        Assertions.assertEquals(LimitedDataAccess.BUSY_MESSAGE, ex.getMessage());
+        Assertions.assertEquals(1, limited.getRejectedCount());
+
+        release.countDown();
+        holder.join();
+        Assertions.assertEquals(0, limited.getActiveCalls());
+        Assertions.assertNotNull(limited.listGames());
+    }
+
+    @Test
+    public void negativeInvalidLimit() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LimitedDataAccess(slow, 0, 50));
+    }
+}
@@ -0,0 +1,157 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBatcherTests {
+    private final List<List<WriteBatcher.Write>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void positiveCoalescesWritesWithSameKey() throws DataAccessException {
+        WriteBatcher batcher = new WriteBatcher(60_000, batches::add);
+        batcher.submit("game-1", "UPDATE game SET game = ? WHERE id = ?", "first", 1);
+        batcher.submit("game-2", "UPDATE game SET game = ? WHERE id = ?", "other", 2);
+        batcher.submit("game-1", "UPDATE game SET game = ? WHERE id = ?", "second", 1);
+        Assertions.assertEquals(2, batcher.getPendingWrites());
+
+        batcher.flush();
+        Assertions.assertEquals(1, batches.size());
+        List<WriteBatcher.Write> batch = batches.get(0);
+        Assertions.assertEquals(2, batch.size());
+        Assertions.assertEquals("other", batch.get(0).params()[0]);
+        Assertions.assertEquals("second", batch.get(1).params()[0]);
+        Assertions.assertEquals(3, batcher.getSubmittedWrites());
+        Assertions.assertEquals(1, batcher.getCoalescedWrites());
+    }
+
+    @Test
+    public void positiveFlushesAfterWindow() throws InterruptedException {
+        CountDownLatch flushed = new CountDownLatch(1);
+        WriteBatcher batcher = new WriteBatcher(10, writes -> {
+            batches.add(writes);
+            flushed.countDown();
+        });
+        batcher.submit("game-1", "UPDATE game SET is_over = 1 WHERE id = ?", 1);
+        batcher.submit("game-2", "UPDATE game SET is_over = 1 WHERE id = ?", 2);
+
+        Assertions.assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(2, batches.get(0).size());
+        Assertions.assertEquals(0, batcher.getPendingWrites());
+    }
+
+    @Test
+    public void negativeEmptyFlushWritesNothing() throws DataAccessException {
+        WriteBatcher batcher = new WriteBatcher(60_000, batches::add);
+        batcher.flush();
+        batcher.submit("game-1", "UPDATE game SET is_over = 1 WHERE id = ?", 1);
+        batcher.discard();
+        batcher.flush();
+        Assertions.assertTrue(batches.isEmpty());
+        Assertions.assertEquals(0, batcher.getBatchCount());
+    }
+
+    @Test
+    public void negativeFailedBatchIsRetried() throws DataAccessException {
+        AtomicBoolean available = new AtomicBoolean(false);
+        WriteBatcher batcher = new WriteBatcher(60_000, writes -> {
+            if (!available.get()) {
+                throw new DataAccessException("Error: database unavailable", true);
+            }
+            batches.add(writes);
+        });
+        batcher.submit("game-1", "UPDATE game SET game = ? WHERE id = ?", "stale", 1);
+        batcher.submit("game-2", "UPDATE game SET is_over = 1 WHERE id = ?", 2);
+        // a read flushing first must not go ahead as if the writes had landed
+        DataAccessException ex = Assertions.assertThrows(DataAccessException.class, batcher::flush);
+        Assertions.assertTrue(ex.isRetryable());
+        Assertions.assertEquals(0, batcher.getBatchCount());
+        Assertions.assertEquals(1, batcher.getFailedBatchCount());
+        Assertions.assertEquals(2, batcher.getPendingWrites());
+
+        // a newer write for game-1 replaces the failed one; game-2 keeps its place at the front
+        batcher.submit("game-1", "UPDATE game SET game = ? WHERE id = ?", "fresh", 1);
+        batcher.submit("game-3", "UPDATE game SET is_over = 1 WHERE id = ?", 3);
+        available.set(true);
+        batcher.flush();
+
+        Assertions.assertEquals(1, batcher.getBatchCount());
+        Assertions.assertEquals(0, batcher.getPendingWrites());
+        List<WriteBatcher.Write> batch = batches.get(0);
+        Assertions.assertEquals(3, batch.size());
+        Assertions.assertEquals(2, batch.get(0).params()[0]);
+        Assertions.assertEquals("fresh", batch.get(1).params()[0]);
+        Assertions.assertEquals(3, batch.get(2).params()[0]);
+    }
+
+    @Test
+    public void negativeFailedBatchRetriedAfterWindow() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+        WriteBatcher batcher = new WriteBatcher(10, writes -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new DataAccessException("Error: database unavailable", true);
+            }
+            batches.add(writes);
+            written.countDown();
+        });
+        batcher.submit("game-1", "UPDATE game SET is_over = 1 WHERE id = ?", 1);
+
+        Assertions.assertTrue(written.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(1, batcher.getFailedBatchCount());
+        Assertions.assertEquals(0, batcher.getPendingWrites());
+    }
+
+    @Test
+    public void negativeRejectedWriteIsDropped() throws DataAccessException {
+        WriteBatcher batcher = new WriteBatcher(60_000, writes -> {
+            for (WriteBatcher.Write write : writes) {
+                if ("too long".equals(write.params()[0])) {
+                    throw new DataAccessException("Error: data too long for column 'game'");
+                }
+            }
+            batches.add(writes);
+        });
+        for (int i = 1; i <= 5; i++) {
+            batcher.submit("game-" + i, "UPDATE game SET game = ? WHERE id = ?", i == 3 ? "too long" : "ok", i);
+        }
+        DataAccessException ex = Assertions.assertThrows(DataAccessException.class, batcher::flush);
+        Assertions.assertFalse(ex.isRetryable());
+
+        // the batch is split until the bad write is alone; every other write still lands
+        Assertions.assertEquals(1, batcher.getDroppedWriteCount());
+        Assertions.assertEquals(0, batcher.getPendingWrites());
+        List<Object> written = batches.stream().flatMap(List::stream).map(write -> write.params()[1]).toList();
+        Assertions.assertEquals(List.of(1, 2, 4, 5), written);
+
+        batcher.submit("game-6", "UPDATE game SET game = ? WHERE id = ?", "ok", 6);
+        batcher.flush();
+        Assertions.assertEquals(1, batcher.getDroppedWriteCount());
+    }
+
+    @Test
+    public void negativeRetriesAreCapped() {
+        AtomicInteger attempts = new AtomicInteger();
+        WriteBatcher batcher = new WriteBatcher(60_000, writes -> {
+            attempts.incrementAndGet();
+            throw new DataAccessException("Error: database unavailable", true);
+        });
+        batcher.submit("game-1", "UPDATE game SET is_over = 1 WHERE id = ?", 1);
+        for (int i = 1; i < WriteBatcher.MAX_ATTEMPTS; i++) {
+            Assertions.assertThrows(DataAccessException.class, batcher::flush);
+            Assertions.assertEquals(1, batcher.getPendingWrites());
+        }
+        Assertions.assertThrows(DataAccessException.class, batcher::flush);
+
+        Assertions.assertEquals(WriteBatcher.MAX_ATTEMPTS, attempts.get());
+        Assertions.assertEquals(0, batcher.getPendingWrites());
+        Assertions.assertEquals(1, batcher.getDroppedWriteCount());
+    }
+}
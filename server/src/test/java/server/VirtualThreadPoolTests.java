@@ -0,0 +1,75 @@
+package server;
+
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualThreadPoolTests {
+
+    @Test
+    public void positiveRunsTasksOnVirtualThreads() throws Exception {
+        VirtualThreadPool pool = new VirtualThreadPool("test-");
+        boolean[] virtual = new boolean[1];
+        CountDownLatch done = new CountDownLatch(1);
+        pool.execute(() -> {
+            virtual[0] = Thread.currentThread().isVirtual();
+            done.countDown();
+        });
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.join();
+        Assertions.assertTrue(virtual[0]);
+        Assertions.assertEquals(0, pool.getThreads());
+    }
+
+    @Test
+    public void positiveManyBlockedTasks() throws Exception {
+        // far more blocked tasks than a platform pool would hold
+        VirtualThreadPool pool = new VirtualThreadPool("test-");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(5_000);
+        for (int i = 0; i < 5_000; i++) {
+            pool.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assertions.assertFalse(pool.isLowOnThreads());
+        release.countDown();
+        pool.join();
+        Assertions.assertEquals(0, pool.getThreads());
+    }
+
+    @Test
+    public void positiveServerLoopsOnPlatformThreads() throws Exception {
+        Assertions.assertTrue(VirtualThreadPool.isServerLoop(
+                Class.forName("org.eclipse.jetty.server.AbstractConnector$Acceptor")));
+        Runnable request = () -> { };
+        Assertions.assertFalse(VirtualThreadPool.isServerLoop(request.getClass()));
+
+        VirtualThreadPool pool = new VirtualThreadPool("loops-");
+        org.eclipse.jetty.server.Server server = new org.eclipse.jetty.server.Server(pool);
+        // one acceptor and one selector
+        ServerConnector connector = new ServerConnector(server, 1, 1);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.start();
+        try {
+            // getAllStackTraces lists platform threads only
+            long loopThreads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("loops-loop-") && thread.isAlive())
+                    .count();
+            Assertions.assertEquals(2, loopThreads);
+        } finally {
+            server.stop();
+        }
+    }
+}
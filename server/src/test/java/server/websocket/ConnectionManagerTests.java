@@ -0,0 +1,372 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.*;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConnectionManagerTests {
+    private ConnectionManager manager;
+
+    /* stands in for a Jetty session, recording what is written to it */
+    private static class FakeSession {
+        final List<String> sent = new ArrayList<>();
+        // while stalled, writes are accepted but their callbacks held back, like a slow client
+        final List<WriteCallback> pending = new ArrayList<>();
+        // more than one unacknowledged write means two writers overlapped, which Jetty rejects
+        int maxPending = 0;
+        boolean stalled = false;
+        // while failing, every write fails, like a client whose socket has gone away
+        boolean failing = false;
+        boolean open = true;
+
+        Session session() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString")) {
+                            sent.add((String) args[0]);
+                            WriteCallback callback = args.length > 1 ? (WriteCallback) args[1] : null;
+                            if (failing && callback != null) {
+                                callback.writeFailed(new IOException("Broken pipe"));
+                            } else if (stalled) {
+                                pending.add(callback);
+                                maxPending = Math.max(maxPending, pending.size());
+                            } else if (callback != null) {
+                                callback.writeSuccess();
+                            }
+                        }
+                        return null;
+                    });
+            return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> open;
+                        case "getRemote" -> remote;
+                        case "close" -> {
+                            open = false;
+                            yield null;
+                        }
+                        default -> null;
+                    });
+        }
+
+        void failPending() {
+            stalled = false;
+            while (!pending.isEmpty()) {
+                pending.remove(0).writeFailed(new IOException("Broken pipe"));
+            }
+        }
+
+        void catchUp() {
+            stalled = false;
+            while (!pending.isEmpty()) {
+                pending.remove(0).writeSuccess();
+            }
+        }
+    }
+
+    private static ServerMessage message(String text) {
+        return new ServerMessage("test", ServerMessage.ServerMessageType.NOTIFICATION, text, text, null);
+    }
+
+    private static ServerMessage board(String text) {
+        return new ServerMessage("test", ServerMessage.ServerMessageType.LOAD_GAME, text, null, null);
+    }
+
+    @BeforeEach
+    public void setup() {
+        manager = new ConnectionManager();
+    }
+
+    @Test
+    public void positiveBroadcastOnlyReachesGame() throws Exception {
+        FakeSession white = new FakeSession();
+        FakeSession black = new FakeSession();
+        FakeSession elsewhere = new FakeSession();
+        manager.add("white", white.session(), 1);
+        manager.add("black", black.session(), 1);
+        manager.add("elsewhere", elsewhere.session(), 2);
+
+        manager.broadcast("white", message("move"), 1);
+
+        Assertions.assertEquals(List.of(), white.sent);
+        Assertions.assertEquals(List.of("move"), black.sent);
+        Assertions.assertEquals(List.of(), elsewhere.sent);
+    }
+
+    @Test
+    public void positiveAlertRoot() throws Exception {
+        FakeSession white = new FakeSession();
+        FakeSession black = new FakeSession();
+        manager.add("white", white.session(), 1);
+        manager.add("black", black.session(), 1);
+
+        manager.alertRoot("white", message("board"));
+        manager.alertRoot("nobody", message("board"));
+
+        Assertions.assertEquals(List.of("board"), white.sent);
+        Assertions.assertEquals(List.of(), black.sent);
+    }
+
+    @Test
+    public void positiveReconnectMovesGames() throws Exception {
+        FakeSession first = new FakeSession();
+        FakeSession second = new FakeSession();
+        manager.add("visitor", first.session(), 1);
+        manager.add("visitor", second.session(), 2);
+
+        Assertions.assertTrue(manager.gameConnections(1).isEmpty());
+        Assertions.assertEquals(1, manager.gameConnections(2).size());
+        manager.broadcast(null, message("hello"), 2);
+        Assertions.assertEquals(List.of(), first.sent);
+        Assertions.assertEquals(List.of("hello"), second.sent);
+    }
+
+    @Test
+    public void negativeClosedSessionsRemoved() throws Exception {
+        FakeSession open = new FakeSession();
+        FakeSession closed = new FakeSession();
+        manager.add("open", open.session(), 1);
+        manager.add("closed", closed.session(), 1);
+        closed.open = false;
+
+        manager.broadcast(null, message("move"), 1);
+
+        Assertions.assertEquals(List.of("move"), open.sent);
+        Assertions.assertEquals(List.of(), closed.sent);
+        Assertions.assertNull(manager.connections.get("closed"));
+        Assertions.assertEquals(1, manager.gameConnections(1).size());
+    }
+
+    @Test
+    public void negativeRemoveLastDropsGame() {
+        manager.add("visitor", new FakeSession().session(), 1);
+        manager.remove("visitor");
+        manager.remove("visitor");
+
+        Assertions.assertTrue(manager.connections.isEmpty());
+        Assertions.assertTrue(manager.gameConnections(1).isEmpty());
+    }
+
+    @Test
+    public void positiveSlowClientDoesNotBlockOthers() {
+        FakeSession slow = new FakeSession();
+        FakeSession fast = new FakeSession();
+        slow.stalled = true;
+        manager.add("slow", slow.session(), 1);
+        manager.add("fast", fast.session(), 1);
+
+        manager.broadcast(null, message("one"), 1);
+        manager.broadcast(null, message("two"), 1);
+
+        Assertions.assertEquals(List.of("one", "two"), fast.sent);
+        // one write in flight, the rest queued behind it
+        Assertions.assertEquals(List.of("one"), slow.sent);
+        Assertions.assertEquals(1, manager.getQueuedMessages());
+
+        slow.catchUp();
+        Assertions.assertEquals(List.of("one", "two"), slow.sent);
+        Assertions.assertEquals(0, manager.getQueuedMessages());
+        Assertions.assertEquals(4, manager.getSentCount());
+    }
+
+    @Test
+    public void positiveLoadGameCoalesced() {
+        FakeSession slow = new FakeSession();
+        slow.stalled = true;
+        manager.add("slow", slow.session(), 1);
+
+        manager.alertRoot("slow", message("first"));
+        manager.alertRoot("slow", board("board 1"));
+        manager.alertRoot("slow", message("note"));
+        manager.alertRoot("slow", board("board 2"));
+        slow.catchUp();
+
+        Assertions.assertEquals(List.of("first", "note", "board 2"), slow.sent);
+        Assertions.assertEquals(1, manager.getCoalescedCount());
+    }
+
+    @Test
+    public void negativeOverflowDropsOldestNotification() {
+        manager = new ConnectionManager(2, ConnectionManager.Overflow.DROP_OLDEST);
+        FakeSession slow = new FakeSession();
+        slow.stalled = true;
+        manager.add("slow", slow.session(), 1);
+
+        manager.alertRoot("slow", message("in flight"));
+        manager.alertRoot("slow", board("board"));
+        manager.alertRoot("slow", message("a"));
+        manager.alertRoot("slow", message("b"));
+        slow.catchUp();
+
+        Assertions.assertEquals(List.of("in flight", "board", "b"), slow.sent);
+        Assertions.assertEquals(1, manager.getDroppedCount());
+        Assertions.assertEquals(2, manager.getMaxQueueDepth());
+    }
+
+    @Test
+    public void negativeOverflowDisconnects() {
+        manager = new ConnectionManager(1, ConnectionManager.Overflow.DISCONNECT);
+        FakeSession slow = new FakeSession();
+        slow.stalled = true;
+        manager.add("slow", slow.session(), 1);
+
+        manager.alertRoot("slow", message("in flight"));
+        manager.alertRoot("slow", message("queued"));
+        manager.alertRoot("slow", message("too many"));
+
+        Assertions.assertFalse(slow.open);
+        Assertions.assertEquals(1, manager.getDisconnectedCount());
+        manager.broadcast(null, message("after"), 1);
+        Assertions.assertNull(manager.connections.get("slow"));
+        Assertions.assertEquals(List.of("in flight"), slow.sent);
+    }
+
+    @Test
+    public void positiveMoveDeltaOrSnapshot() {
+        FakeSession mover = new FakeSession();
+        FakeSession deltaObserver = new FakeSession();
+        FakeSession legacyObserver = new FakeSession();
+        manager.add("mover", mover.session(), 1, true);
+        manager.add("delta", deltaObserver.session(), 1, true);
+        manager.add("legacy", legacyObserver.session(), 1);
+        int[] snapshots = {0};
+        ServerMessage delta = new ServerMessage("mover", ServerMessage.ServerMessageType.MOVE_APPLIED, "delta", null, null);
+
+        manager.alertRootMove("mover", delta, () -> board("board " + ++snapshots[0]));
+        manager.broadcastMove("mover", delta, () -> board("board " + ++snapshots[0]), 1);
+
+        Assertions.assertEquals(List.of("delta"), mover.sent);
+        Assertions.assertEquals(List.of("delta"), deltaObserver.sent);
+        Assertions.assertEquals(List.of("board 1"), legacyObserver.sent);
+        Assertions.assertEquals(1, snapshots[0]);
+    }
+
+    @Test
+    public void positiveBroadcastAllSendsRootOnce() {
+        FakeSession root = new FakeSession();
+        FakeSession other = new FakeSession();
+        manager.add("root", root.session(), 1);
+        manager.add("other", other.session(), 1);
+
+        manager.broadcastAll("root", message("checkmate"), 1);
+
+        Assertions.assertEquals(List.of("checkmate"), root.sent);
+        Assertions.assertEquals(List.of("checkmate"), other.sent);
+    }
+
+    @Test
+    public void positiveSendToUnregisteredSessionIsQueued() {
+        FakeSession stranger = new FakeSession();
+        stranger.stalled = true;
+        var session = stranger.session();
+
+        manager.sendTo(null, session, message("error 1"));
+        manager.sendTo("someone", session, message("error 2"));
+        Assertions.assertEquals(List.of("error 1"), stranger.sent);
+
+        stranger.catchUp();
+        Assertions.assertEquals(List.of("error 1", "error 2"), stranger.sent);
+        Assertions.assertEquals(1, stranger.maxPending);
+        Assertions.assertEquals(2, manager.getSentCount());
+        Assertions.assertTrue(manager.connections.isEmpty());
+    }
+
+    @Test
+    public void positiveSendToUsesSessionQueue() {
+        FakeSession white = new FakeSession();
+        white.stalled = true;
+        var session = white.session();
+        manager.add("white", session, 1);
+
+        manager.broadcast(null, message("move"), 1);
+        // e.g. an error for a command whose auth token didn't resolve to this visitor
+        manager.sendTo("", session, message("error"));
+        Assertions.assertEquals(List.of("move"), white.sent);
+        Assertions.assertEquals(1, manager.getQueuedMessages());
+
+        white.catchUp();
+        Assertions.assertEquals(List.of("move", "error"), white.sent);
+        Assertions.assertEquals(1, white.maxPending);
+    }
+
+    @Test
+    public void positiveReconnectOnSameSessionKeepsOneWriter() {
+        FakeSession visitor = new FakeSession();
+        visitor.stalled = true;
+        var session = visitor.session();
+        manager.add("visitor", session, 1);
+        manager.alertRoot("visitor", message("first"));
+        manager.alertRoot("visitor", message("second"));
+
+        manager.add("visitor", session, 2);
+        manager.alertRoot("visitor", message("third"));
+        visitor.catchUp();
+
+        Assertions.assertEquals(List.of("first", "second", "third"), visitor.sent);
+        Assertions.assertEquals(1, visitor.maxPending);
+        Assertions.assertTrue(manager.gameConnections(1).isEmpty());
+        Assertions.assertEquals(1, manager.gameConnections(2).size());
+    }
+
+    @Test
+    public void positiveLeftConnectionDrainsBeforeReply() {
+        FakeSession visitor = new FakeSession();
+        visitor.stalled = true;
+        var session = visitor.session();
+        manager.add("visitor", session, 1);
+        manager.alertRoot("visitor", message("board"));
+        manager.remove("visitor");
+
+        manager.sendTo("visitor", session, message("error"));
+        visitor.catchUp();
+
+        Assertions.assertEquals(List.of("board", "error"), visitor.sent);
+        Assertions.assertEquals(1, visitor.maxPending);
+    }
+
+    @Test
+    public void negativeFailedWriteRemovesConnection() {
+        FakeSession broken = new FakeSession();
+        FakeSession healthy = new FakeSession();
+        manager.add("broken", broken.session(), 1);
+        manager.add("healthy", healthy.session(), 1);
+        broken.failing = true;
+
+        manager.broadcast(null, message("first"), 1);
+        Assertions.assertEquals(1, manager.getFailedCount());
+        Assertions.assertFalse(broken.open);
+        Assertions.assertNull(manager.connections.get("broken"));
+        Assertions.assertEquals(1, manager.gameConnections(1).size());
+
+        // later messages aren't queued on the dead connection
+        manager.broadcast(null, message("second"), 1);
+        manager.alertRoot("broken", message("third"));
+        Assertions.assertEquals(List.of("first"), broken.sent);
+        Assertions.assertEquals(List.of("first", "second"), healthy.sent);
+        Assertions.assertEquals(1, manager.getFailedCount());
+    }
+
+    @Test
+    public void negativeFailedWriteKeepsReconnectedVisitor() {
+        FakeSession old = new FakeSession();
+        FakeSession reconnected = new FakeSession();
+        old.stalled = true;
+        manager.add("visitor", old.session(), 1);
+        manager.alertRoot("visitor", message("in flight"));
+        manager.add("visitor", reconnected.session(), 2);
+
+        // the old session's write fails after the visitor has moved on
+        old.failPending();
+        Assertions.assertFalse(old.open);
+        Assertions.assertTrue(manager.gameConnections(1).isEmpty());
+        manager.broadcast(null, message("moved"), 2);
+        Assertions.assertEquals(List.of("moved"), reconnected.sent);
+        Assertions.assertEquals(2, manager.connections.get("visitor").gameID);
+    }
+}
@@ -0,0 +1,150 @@
+package server.websocket;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameMailboxesTests {
+    private ExecutorService executor;
+    private GameMailboxes mailboxes;
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newFixedThreadPool(8);
+        mailboxes = new GameMailboxes(executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void positiveOneGameRunsInOrder() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        int[] overlaps = {0};
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            int command = i;
+            mailboxes.submit(1, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps[0]++;
+                }
+                order.add(command);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, overlaps[0]);
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals(i, order.get(i));
+        }
+        waitForIdle();
+        Assertions.assertEquals(0, mailboxes.getActiveGames());
+        Assertions.assertEquals(200, mailboxes.getCompletedCount());
+    }
+
+    @Test
+    public void positiveGamesRunInParallel() throws Exception {
+        // game 1 blocks until game 2 has run, which would deadlock if games shared a queue
+        CountDownLatch gameTwoRan = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            try {
+                if (gameTwoRan.await(10, TimeUnit.SECONDS)) {
+                    done.countDown();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        mailboxes.submit(2, gameTwoRan::countDown);
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void positiveDepthMetrics() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        mailboxes.submit(1, () -> { });
+        mailboxes.submit(1, () -> { });
+
+        Assertions.assertEquals(2, mailboxes.getDepth(1));
+        Assertions.assertEquals(2, mailboxes.getPendingCommands());
+        Assertions.assertEquals(2, mailboxes.getMaxDepth());
+        release.countDown();
+        waitForIdle();
+        Assertions.assertEquals(0, mailboxes.getDepth(1));
+        Assertions.assertEquals(0, mailboxes.getPendingCommands());
+    }
+
+    @Test
+    public void negativeFailingCommandKeepsMailboxAlive() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            throw new IllegalStateException("boom");
+        });
+        mailboxes.submit(1, done::countDown);
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, mailboxes.getFailedCount());
+    }
+
+    @Test
+    public void negativeErrorKeepsMailboxAlive() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            throw new AssertionError("boom");
+        });
+        mailboxes.submit(1, done::countDown);
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, mailboxes.getFailedCount());
+        waitForIdle();
+        Assertions.assertEquals(0, mailboxes.getActiveGames());
+
+        CountDownLatch later = new CountDownLatch(1);
+        mailboxes.submit(1, later::countDown);
+        Assertions.assertTrue(later.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void negativeRejectedDrainRunsOnCaller() {
+        executor.shutdown();
+        List<String> threads = new ArrayList<>();
+        mailboxes.submit(1, () -> threads.add(Thread.currentThread().getName()));
+        mailboxes.submit(1, () -> threads.add(Thread.currentThread().getName()));
+
+        Assertions.assertEquals(List.of(Thread.currentThread().getName(), Thread.currentThread().getName()), threads);
+        Assertions.assertEquals(2, mailboxes.getRejectedCount());
+        Assertions.assertEquals(0, mailboxes.getActiveGames());
+        Assertions.assertEquals(0, mailboxes.getPendingCommands());
+    }
+
+    private void waitForIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (mailboxes.getActiveGames() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
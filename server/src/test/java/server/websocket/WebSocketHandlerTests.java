@@ -0,0 +1,102 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.MemoryDataAccess;
+import model.AuthData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+import service.PasswordHasher;
+import service.Service;
+import service.ServiceException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class WebSocketHandlerTests {
+    private ExecutorService executor;
+    private PasswordHasher hasher;
+    private Service service;
+    private WebSocketHandler handler;
+    private int gameID;
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    @BeforeEach
+    public void setup() throws ServiceException {
+        executor = Executors.newFixedThreadPool(2);
+        hasher = new PasswordHasher(1, 4, 4, 10_000);
+        service = new Service(new MemoryDataAccess(), hasher);
+        handler = new WebSocketHandler(service, new GameMailboxes(executor));
+
+        AuthData white = service.registerUser(new UserData("white", "password", "white@mail.com"));
+        AuthData black = service.registerUser(new UserData("black", "password", "black@mail.com"));
+        gameID = service.createGame(white.authToken(), "mate").gameID();
+        service.joinGame(white.authToken(), "WHITE", gameID);
+        service.joinGame(black.authToken(), "BLACK", gameID);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        // closes the hasher too
+        service.close();
+    }
+
+    @Test
+    public void positiveCheckmateEndsGame() throws ServiceException {
+        // fool's mate: black's queen mates on the fourth move
+        handler.makeMove("white", gameID, move(2, 6, 3, 6));
+        handler.makeMove("black", gameID, move(7, 5, 5, 5));
+        handler.makeMove("white", gameID, move(2, 7, 4, 7));
+        Assertions.assertEquals(0, service.getGame(gameID).isOver());
+        handler.makeMove("black", gameID, move(8, 4, 4, 8));
+
+        Assertions.assertEquals(1, service.getGame(gameID).isOver());
+        ServiceException ex = Assertions.assertThrows(ServiceException.class,
+                () -> handler.makeMove("white", gameID, move(2, 1, 3, 1)));
+        Assertions.assertEquals("Error: game is over. You cannot make any more moves.", ex.getMessage());
+    }
+
+    @Test
+    public void positiveCheckKeepsGameOpen() throws ServiceException {
+        handler.makeMove("white", gameID, move(2, 5, 4, 5));
+        handler.makeMove("black", gameID, move(7, 6, 6, 6));
+        // the queen checks black's king along the diagonal, but g7-g6 blocks it
+        handler.makeMove("white", gameID, move(1, 4, 5, 8));
+
+        Assertions.assertEquals(0, service.getGame(gameID).isOver());
+        handler.makeMove("black", gameID, move(7, 7, 6, 7));
+        Assertions.assertEquals(4, service.getGame(gameID).game().getPly());
+    }
+
+    @Test
+    public void positiveReplaceGameByPlayer() throws Exception {
+        ChessGame uploaded = new ChessGame();
+        uploaded.makeMove(move(2, 5, 4, 5));
+        handler.replaceGame("white", gameID, uploaded);
+        Assertions.assertEquals(uploaded, service.getGame(gameID).game());
+
+        // moves sent afterwards are checked against the uploaded board
+        handler.makeMove("black", gameID, move(7, 5, 5, 5));
+        Assertions.assertEquals(2, service.getGame(gameID).game().getPly());
+    }
+
+    @Test
+    public void negativeReplaceGameRejected() throws InvalidMoveException {
+        ChessGame uploaded = new ChessGame();
+        uploaded.makeMove(move(2, 5, 4, 5));
+        ServiceException notPlayer = Assertions.assertThrows(ServiceException.class,
+                () -> handler.replaceGame("observer", gameID, uploaded));
+        Assertions.assertEquals("Error: you are not a player in the game.", notPlayer.getMessage());
+        Assertions.assertEquals(new ChessGame(), service.getGame(gameID).game());
+
+        service.markGameAsOver(gameID);
+        Assertions.assertThrows(ServiceException.class, () -> handler.replaceGame("white", gameID, uploaded));
+        Assertions.assertEquals(new ChessGame(), service.getGame(gameID).game());
+    }
+}
@@ -0,0 +1,60 @@
+package service;
+
+import model.AuthData;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AuthCacheTests {
+    private final AtomicLong now = new AtomicLong();
+    private AuthCache cache;
+
+    @BeforeEach
+    public void init() {
+        cache = new AuthCache(64, 1_000, now::get);
+    }
+
+    @Test
+    public void positiveHitAfterPut() {
+        AuthData auth = new AuthData("token", "user");
+        Assertions.assertNull(cache.get("token"));
+        cache.put(auth);
+        Assertions.assertEquals(auth, cache.get("token"));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    public void negativeExpiresAfterTtl() {
+        cache.put(new AuthData("token", "user"));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        Assertions.assertNotNull(cache.get("token"));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assertions.assertNull(cache.get("token"));
+        Assertions.assertEquals(1, cache.getExpirations());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void negativeInvalidateAndClear() {
+        cache.put(new AuthData("a", "user"));
+        cache.put(new AuthData("b", "user"));
+        cache.invalidate("a");
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertNotNull(cache.get("b"));
+        cache.clear();
+        Assertions.assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void positiveEvictsLeastRecentlyUsed() {
+        AuthCache small = new AuthCache(16, 60_000, now::get);
+        for (int i = 0; i < 1_000; i++) {
+            small.put(new AuthData("token" + i, "user"));
+        }
+        Assertions.assertTrue(small.size() <= 16);
+        Assertions.assertEquals(1_000 - small.size(), small.getEvictions());
+    }
+}
@@ -0,0 +1,219 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import dataaccess.MemoryDataAccess;
+import model.GameData;
+import model.ModifiedGameData;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class GameRegistryTests {
+    private DataAccess dataAccess;
+    private GameRegistry registry;
+    private int gameID;
+
+    @BeforeEach
+    public void init() {
+        dataAccess = new MemoryDataAccess();
+        // flush and evict by hand so the tests don't race the background writer
+        registry = new GameRegistry(dataAccess, 60_000, 60_000);
+        GameData game = dataAccess.createGame("registry");
+        gameID = game.gameID();
+    }
+
+    @AfterEach
+    public void close() {
+        registry.close();
+    }
+
+    private ChessGame playOpeningMove(ModifiedGameData game) throws InvalidMoveException {
+        ChessGame chessGame = game.game();
+        chessGame.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        registry.updateGame(gameID, chessGame);
+        return chessGame;
+    }
+
+    @Test
+    public void positiveLoadsGameOnce() {
+        ModifiedGameData first = registry.getGame(gameID);
+        ModifiedGameData second = registry.getGame(gameID);
+        Assertions.assertSame(first.game(), second.game());
+        Assertions.assertEquals(1, registry.getLoads());
+        Assertions.assertEquals(1, registry.getHits());
+    }
+
+    @Test
+    public void positiveUpdateWrittenOnFlush() throws InvalidMoveException {
+        ChessGame moved = playOpeningMove(registry.getGame(gameID));
+        Assertions.assertEquals(moved, registry.getGame(gameID).game());
+        Assertions.assertEquals(1, registry.getDirtyGames());
+        Assertions.assertEquals(0, registry.getWrites());
+
+        registry.flush();
+        // storage gets a copy of the board, never the live instance
+        Assertions.assertEquals(moved, dataAccess.getGame(gameID).game());
+        Assertions.assertNotSame(moved, dataAccess.getGame(gameID).game());
+        Assertions.assertEquals(0, registry.getDirtyGames());
+        Assertions.assertEquals(1, registry.getWrites());
+    }
+
+    @Test
+    public void positiveWritesThroughPlayerChanges() {
+        registry.getGame(gameID);
+        registry.updatePlayer(gameID, "WHITE", "white");
+        registry.markGameAsOver(gameID);
+        Assertions.assertEquals("white", registry.getGame(gameID).whiteUsername());
+        Assertions.assertEquals(1, registry.getGame(gameID).isOver());
+        Assertions.assertEquals("white", dataAccess.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    public void positiveEvictsIdleGames() throws InvalidMoveException {
+        GameRegistry eager = new GameRegistry(dataAccess, 60_000, 0);
+        try {
+            ModifiedGameData game = eager.getGame(gameID);
+            ChessGame moved = game.game();
+            moved.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            eager.updateGame(gameID, moved);
+
+            eager.evictIdle();
+            Assertions.assertEquals(0, eager.size());
+            Assertions.assertEquals(1, eager.getEvictions());
+            Assertions.assertEquals(1, eager.getWrites());
+            Assertions.assertEquals(moved, dataAccess.getGame(gameID).game());
+        } finally {
+            eager.close();
+        }
+    }
+
+    @Test
+    public void negativeClearDropsPendingWrites() throws InvalidMoveException {
+        playOpeningMove(registry.getGame(gameID));
+        registry.clear();
+        registry.flush();
+        Assertions.assertEquals(0, registry.size());
+        Assertions.assertEquals(0, registry.getWrites());
+    }
+
+    @Test
+    public void negativeClearWaitsForWriteInFlight() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DataAccess slow = new MemoryDataAccess() {
+            @Override
+            public void updateGameMoves(int id, ChessGame newGame) throws DataAccessException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.updateGameMoves(id, newGame);
+                events.add("write");
+            }
+
+            @Override
+            public void clear() {
+                events.add("clear");
+                super.clear();
+            }
+        };
+        int slowID = slow.createGame("slow").gameID();
+        GameRegistry slowRegistry = new GameRegistry(slow, 60_000, 60_000);
+        try {
+            ChessGame moved = slowRegistry.getGame(slowID).game();
+            moved.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            slowRegistry.updateGame(slowID, moved);
+
+            Thread flusher = new Thread(slowRegistry::flush);
+            flusher.start();
+            Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+            Thread clearer = new Thread(slowRegistry::clear);
+            clearer.start();
+            clearer.join(200);
+            // storage must not be cleared under the write
+            Assertions.assertTrue(events.isEmpty());
+
+            release.countDown();
+            flusher.join(5_000);
+            clearer.join(5_000);
+            Assertions.assertEquals(List.of("write", "clear"), events);
+            Assertions.assertEquals(0, slowRegistry.size());
+
+            // an update for a game storage no longer has is not written
+            slowRegistry.updateGame(slowID, moved);
+            Assertions.assertEquals(List.of("write", "clear"), events);
+        } finally {
+            release.countDown();
+            slowRegistry.close();
+        }
+    }
+
+    @Test
+    public void negativeFailedWriteStaysDirty() throws InvalidMoveException {
+        AtomicBoolean available = new AtomicBoolean(false);
+        DataAccess flaky = new MemoryDataAccess() {
+            @Override
+            public void updateGameMoves(int id, ChessGame newGame) throws DataAccessException {
+                if (!available.get()) {
+                    throw new DataAccessException("Error: database unavailable");
+                }
+                super.updateGameMoves(id, newGame);
+            }
+        };
+        int flakyID = flaky.createGame("flaky").gameID();
+        GameRegistry eager = new GameRegistry(flaky, 60_000, 0);
+        try {
+            ModifiedGameData game = eager.getGame(flakyID);
+            ChessGame moved = game.game();
+            moved.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            eager.updateGame(flakyID, moved);
+
+            eager.flush();
+            Assertions.assertEquals(1, eager.getDirtyGames());
+            Assertions.assertEquals(0, eager.getWrites());
+            // the only copy of the move is in memory, so it can't be evicted yet
+            eager.evictIdle();
+            Assertions.assertEquals(1, eager.size());
+            Assertions.assertEquals(0, eager.getEvictions());
+
+            available.set(true);
+            eager.evictIdle();
+            Assertions.assertEquals(0, eager.size());
+            Assertions.assertEquals(0, eager.getDirtyGames());
+            Assertions.assertEquals(moved, flaky.getGame(flakyID).game());
+        } finally {
+            eager.close();
+        }
+    }
+
+    @Test
+    public void positiveUpdateAfterEvictionReloads() throws InvalidMoveException {
+        GameRegistry eager = new GameRegistry(dataAccess, 60_000, 0);
+        try {
+            ModifiedGameData game = eager.getGame(gameID);
+            eager.evictIdle();
+            Assertions.assertEquals(0, eager.size());
+
+            ChessGame moved = game.game();
+            moved.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            eager.updateGame(gameID, moved);
+            Assertions.assertEquals(1, eager.size());
+            Assertions.assertEquals(moved, eager.getGame(gameID).game());
+            Assertions.assertEquals(1, eager.getDirtyGames());
+        } finally {
+            eager.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CompletableFuture;
+
+public class PasswordHasherTests {
+
+    @Test
+    public void positiveHashAndVerify() throws ServiceException {
+        try (PasswordHasher hasher = new PasswordHasher(2, 4, 4, 10_000)) {
+            String hash = hasher.hash("password");
+            Assertions.assertNotEquals("password", hash);
+            Assertions.assertTrue(hash.startsWith("$2a$04$"));
+            Assertions.assertTrue(hasher.verify("password", hash));
+            Assertions.assertFalse(hasher.verify("wrong", hash));
+            Assertions.assertEquals(3, hasher.getCompletedCount());
+            Assertions.assertTrue(hasher.getAverageLatencyMillis() > 0);
+        }
+    }
+
+    @Test
+    public void negativeShedsLoadWhenQueueFull() throws ServiceException {
+        // one thread and no queue: the second hash submitted while the first runs is refused
+        try (PasswordHasher hasher = new PasswordHasher(1, 1, 14, 60_000)) {
+            CompletableFuture<String> running = hasher.hashAsync("a");
+            CompletableFuture<String> queued = hasher.hashAsync("b");
+            ServiceException ex = Assertions.assertThrows(ServiceException.class, () -> hasher.hashAsync("c"));
+            Assertions.assertEquals(ServiceException.BUSY_MESSAGE, ex.getMessage());
+            Assertions.assertEquals(1, hasher.getRejectedCount());
+            running.cancel(false);
+            queued.cancel(false);
+        }
+    }
+
+    @Test
+    public void negativeTimedOutHashLeavesQueue() throws ServiceException {
+        // the only thread is busy, so the second hash times out while still queued
+        try (PasswordHasher hasher = new PasswordHasher(1, 1, 14, 50)) {
+            CompletableFuture<String> running = hasher.hashAsync("a");
+            ServiceException ex = Assertions.assertThrows(ServiceException.class, () -> hasher.hash("b"));
+            Assertions.assertEquals(ServiceException.BUSY_MESSAGE, ex.getMessage());
+            Assertions.assertEquals(0, hasher.getQueueDepth());
+            Assertions.assertEquals(1, hasher.getCancelledCount());
+            // the freed slot takes a new hash instead of refusing it
+            CompletableFuture<String> next = hasher.hashAsync("c");
+            Assertions.assertEquals(0, hasher.getRejectedCount());
+            running.cancel(false);
+            next.cancel(false);
+        }
+    }
+
+    @Test
+    public void negativeMalformedHash() {
+        try (PasswordHasher hasher = new PasswordHasher(1, 1, 4, 10_000)) {
+            Assertions.assertThrows(ServiceException.class, () -> hasher.verify("password", "not a hash"));
+        }
+    }
+
+    @Test
+    public void negativeInvalidCost() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(1, 1, 3, 10_000));
+    }
+}
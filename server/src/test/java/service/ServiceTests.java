@@ -1,9 +1,13 @@
 package service;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import dataaccess.DataAccess;
 import dataaccess.MemoryDataAccess;
 import dataaccess.MySqlDataAccess;
 import model.*;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -23,6 +27,11 @@ public class ServiceTests {
         service = new Service(dataAccess);
     }
 
+    @AfterAll
+    public static void close() {
+        service.close();
+    }
+
     @AfterEach
     public void reset() {
         try {
@@ -202,4 +211,34 @@ public class ServiceTests {
             Assertions.assertEquals(e.getMessage(), "Error: unauthorized");
         }
     }
+
+    @Test
+    public void positiveMakeMove() {
+        try {
+            AuthData white = service.registerUser(new UserData("mover", "pass", "m@x.com"));
+            GameData game = service.createGame(white.authToken(), "moves");
+            service.joinGame(white.authToken(), "WHITE", game.gameID());
+            ModifiedGameData result = service.makeMove("mover", game.gameID(),
+                    new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            Assertions.assertEquals(1, result.game().getPly());
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, service.getGame(game.gameID()).game().getTeamTurn());
+        } catch (Exception e) {
+            Assertions.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void negativeMakeMove() {
+        try {
+            AuthData white = service.registerUser(new UserData("mover", "pass", "m@x.com"));
+            GameData game = service.createGame(white.authToken(), "moves");
+            service.joinGame(white.authToken(), "WHITE", game.gameID());
+            // black's pawn
+            service.makeMove("mover", game.gameID(),
+                    new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+            Assertions.fail();
+        } catch (Exception e) {
+            Assertions.assertEquals(e.getMessage(), "Error: You can't move that piece!");
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chessboard: one 64-bit mask per piece type and
+ * team color, plus per-team and combined occupancy masks.
+ * <p>
+ * Squares are numbered 0-63 with bit 0 at row 1, column 1 and bit 63 at row 8,
+ * column 8, so square = (row - 1) * 8 + (column - 1).
+ */
+public class BitBoard {
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(row(square), column(square));
+        }
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    // one mask per (color, type) pair, indexed by pieceIndex()
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+    // pieceIndex() + 1 for every square, 0 if the square is empty
+    private final byte[] mailbox = new byte[64];
+    // square of each team's king, -1 if it has none
+    private final int[] kingSquares = {-1, -1};
+    // Zobrist key of the pieces on the board, updated on every set/clear
+    private long zobristKey;
+
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return a shared, immutable ChessPosition for the given square
+     */
+    public static ChessPosition position(int square) {
+        return POSITIONS[square];
+    }
+
+    /**
+     * @return a shared, immutable ChessPiece for the given pieceIndex()
+     */
+    public static ChessPiece piece(int pieceIndex) {
+        return PIECES[pieceIndex];
+    }
+
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    /**
+     * Places a piece on a square, replacing whatever was there before
+     *
+     * @param square the square to update
+     * @param piece  the piece to place, or null to empty the square
+     */
+    public void set(int square, ChessPiece piece) {
+        clear(square);
+        if (piece == null) {
+            return;
+        }
+        int index = pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        long bit = 1L << square;
+        pieces[index] |= bit;
+        colors[piece.getTeamColor().ordinal()] |= bit;
+        occupied |= bit;
+        mailbox[square] = (byte) (index + 1);
+        zobristKey ^= Zobrist.pieceKey(index, square);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            kingSquares[piece.getTeamColor().ordinal()] = square;
+        }
+    }
+
+    public void clear(int square) {
+        int code = mailbox[square];
+        if (code == 0) {
+            return;
+        }
+        int color = (code - 1) / 6;
+        long bit = ~(1L << square);
+        pieces[code - 1] &= bit;
+        colors[color] &= bit;
+        occupied &= bit;
+        mailbox[square] = 0;
+        zobristKey ^= Zobrist.pieceKey(code - 1, square);
+        if (kingSquares[color] == square) {
+            // fall back to any other king of that color (only on hand-built boards)
+            long kings = pieces[color * 6 + ChessPiece.PieceType.KING.ordinal()];
+            kingSquares[color] = kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(mailbox, (byte) 0);
+        Arrays.fill(kingSquares, -1);
+        occupied = 0L;
+        zobristKey = 0L;
+    }
+
+    /**
+     * @return pieceIndex() of the piece on the square, or -1 if the square is empty
+     */
+    public int pieceIndexAt(int square) {
+        return mailbox[square] - 1;
+    }
+
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    /**
+     * @return a copy of the twelve piece masks, indexed by pieceIndex()
+     */
+    public long[] placement() {
+        return pieces.clone();
+    }
+
+    /**
+     * @return true if the board's piece masks equal a copy taken with placement()
+     */
+    public boolean hasPlacement(long[] placement) {
+        return Arrays.equals(pieces, placement);
+    }
+
+    public long occupancy(ChessGame.TeamColor color) {
+        return colors[color.ordinal()];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public long zobristKey() {
+        return zobristKey;
+    }
+
+    public boolean isOccupied(int square) {
+        return (occupied & (1L << square)) != 0;
+    }
+
+    /**
+     * @return the square of the team's king, or -1 if it has no king on the board
+     */
+    public int kingSquare(ChessGame.TeamColor color) {
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * Determines if any piece of a team attacks a square. Works backwards from
+     * the target: a knight attacks it exactly when a knight on the target would
+     * attack the knight, and likewise for every other piece type.
+     *
+     * @param square  the square to test
+     * @param byColor the attacking team
+     * @return True if a piece of byColor could capture on the square
+     */
+    public boolean isAttacked(int square, ChessGame.TeamColor byColor) {
+        int base = byColor.ordinal() * 6;
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        return (AttackTables.pawnAttacks(ChessGame.opposite(byColor), square)
+                        & pieces[base + ChessPiece.PieceType.PAWN.ordinal()]) != 0
+                || (AttackTables.knightAttacks(square) & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0
+                || (AttackTables.kingAttacks(square) & pieces[base + ChessPiece.PieceType.KING.ordinal()]) != 0
+                || (AttackTables.bishopAttacks(square, occupied)
+                        & (pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens)) != 0
+                || (AttackTables.rookAttacks(square, occupied)
+                        & (pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens)) != 0;
+    }
+}
@@ -0,0 +1,121 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Generates the same pseudo-legal moves as PieceCalculatorHelper, but from the
+ * board's bitboards and the precomputed AttackTables instead of walking the
+ * board square by square.
+ */
+public class BitboardMoveGenerator {
+    private static final ChessPiece.PieceType[] PROMOTION_PIECES = {
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.QUEEN
+    };
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private static final long RANK_1 = 0xFFL;
+    private static final long RANK_8 = 0xFFL << 56;
+
+    // most moves a single piece can have: a queen in the middle of an open board
+    private static final int MAX_PIECE_MOVES = 27;
+
+    public static Collection<ChessMove> calculatePieceMoves(ChessBoard board, ChessPosition myPosition) {
+        MoveBuffer buffer = new MoveBuffer(MAX_PIECE_MOVES);
+        generate(board.getBitBoard(), BitBoard.square(myPosition), buffer);
+        return buffer.toChessMoves();
+    }
+
+    /**
+     * Appends the pseudo-legal moves of every piece of one team to a buffer
+     *
+     * @param bits   the board to generate moves on
+     * @param color  the team to generate moves for
+     * @param buffer where the PackedMove ints are written
+     */
+    public static void generate(BitBoard bits, ChessGame.TeamColor color, MoveBuffer buffer) {
+        long team = bits.occupancy(color);
+        while (team != 0) {
+            generate(bits, Long.numberOfTrailingZeros(team), buffer);
+            team &= team - 1;
+        }
+    }
+
+    /**
+     * Appends the pseudo-legal moves of the piece on a square to a buffer
+     *
+     * @param bits   the board to generate moves on
+     * @param from   square of the piece to move; must not be empty
+     * @param buffer where the PackedMove ints are written
+     */
+    public static void generate(BitBoard bits, int from, MoveBuffer buffer) {
+        int index = bits.pieceIndexAt(from);
+        ChessGame.TeamColor color = COLORS[index / 6];
+        ChessPiece.PieceType type = TYPES[index % 6];
+
+        long targets = targets(bits, from, type, color);
+        long enemies = bits.occupancy(ChessGame.opposite(color));
+        long promotionRank = 0L;
+        if (type == ChessPiece.PieceType.PAWN) {
+            promotionRank = color == ChessGame.TeamColor.WHITE ? RANK_8 : RANK_1;
+        }
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            long bit = targets & -targets;
+            targets ^= bit;
+
+            int flags = (bit & enemies) != 0 ? PackedMove.FLAG_CAPTURE : 0;
+            if (type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16) {
+                flags |= PackedMove.FLAG_DOUBLE_PUSH;
+            }
+            if ((bit & promotionRank) != 0) {
+                for (ChessPiece.PieceType promotion : PROMOTION_PIECES) {
+                    buffer.add(PackedMove.of(from, to, promotion, flags));
+                }
+            } else {
+                buffer.add(PackedMove.of(from, to, null, flags));
+            }
+        }
+    }
+
+    /**
+     * Calculates the squares a piece can move to, ignoring whether the move
+     * would leave its own king in danger
+     *
+     * @return bitboard of destination squares
+     */
+    public static long targets(BitBoard bits, int from, ChessPiece.PieceType type, ChessGame.TeamColor color) {
+        long occupied = bits.occupied();
+        long notOwn = ~bits.occupancy(color);
+        return switch (type) {
+            case KING -> AttackTables.kingAttacks(from) & notOwn;
+            case QUEEN -> AttackTables.queenAttacks(from, occupied) & notOwn;
+            case BISHOP -> AttackTables.bishopAttacks(from, occupied) & notOwn;
+            case KNIGHT -> AttackTables.knightAttacks(from) & notOwn;
+            case ROOK -> AttackTables.rookAttacks(from, occupied) & notOwn;
+            case PAWN -> pawnTargets(bits, from, color);
+        };
+    }
+
+    private static long pawnTargets(BitBoard bits, int from, ChessGame.TeamColor color) {
+        long empty = ~bits.occupied();
+        long captures = AttackTables.pawnAttacks(color, from) & bits.occupancy(ChessGame.opposite(color));
+        long pawn = 1L << from;
+        long pushes;
+        if (color == ChessGame.TeamColor.WHITE) {
+            pushes = (pawn << 8) & empty;
+            // initial double move from row 2 needs both squares free
+            if (BitBoard.row(from) == 2) {
+                pushes |= (pushes << 8) & empty;
+            }
+        } else {
+            pushes = (pawn >>> 8) & empty;
+            if (BitBoard.row(from) == 7) {
+                pushes |= (pushes >>> 8) & empty;
+            }
+        }
+        return pushes | captures;
+    }
+}
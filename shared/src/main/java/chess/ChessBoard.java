@@ -11,11 +11,30 @@ import java.util.Objects;
  */
 public class ChessBoard {
     private ChessPiece[][] squares = new ChessPiece[8][8];
+    // bitboard index over squares; transient so the serialized form stays the 8x8 grid
+    private transient BitBoard bits = new BitBoard();
+    // the squares array bits was built from - differs after the grid is replaced (e.g. by Gson)
+    private transient ChessPiece[][] indexedSquares = squares;
 
     public ChessBoard() {
 
     }
 
+    /**
+     * Creates an independent copy of another board
+     *
+     * @param other the board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                if (other.squares[i][j] != null) {
+                    addPiece(BitBoard.position(i * 8 + j), other.squares[i][j]);
+                }
+            }
+        }
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -23,6 +42,7 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
+        getBitBoard().set(BitBoard.square(position), piece);
         squares[position.getRow()-1][position.getColumn()-1] = piece;
     }
 
@@ -37,6 +57,42 @@ public class ChessBoard {
         return squares[position.getRow()-1][position.getColumn()-1];
     }
 
+    /**
+     * Gets the bitboard view of this board, rebuilding it first if the
+     * underlying grid was replaced since it was last indexed
+     *
+     * @return the bitboard kept in sync with this board
+     */
+    public BitBoard getBitBoard() {
+        if (bits == null || indexedSquares != squares) {
+            reindex();
+        }
+        return bits;
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on this board
+     */
+    public long getZobristKey() {
+        return getBitBoard().zobristKey();
+    }
+
+    private void reindex() {
+        if (bits == null) {
+            bits = new BitBoard();
+        } else {
+            bits.reset();
+        }
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                if (squares[i][j] != null) {
+                    bits.set(i * 8 + j, squares[i][j]);
+                }
+            }
+        }
+        indexedSquares = squares;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
@@ -48,27 +104,7 @@ public class ChessBoard {
 
     /* add default beginning chess pieces */
     public void addDefaultPieces() {
-        ChessPiece.PieceType[] pieces = new ChessPiece.PieceType[]{
-                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
-                ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP,
-                ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.PAWN,
-                ChessPiece.PieceType.PAWN, ChessPiece.PieceType.PAWN, ChessPiece.PieceType.PAWN,
-                ChessPiece.PieceType.PAWN, ChessPiece.PieceType.PAWN, ChessPiece.PieceType.PAWN, ChessPiece.PieceType.PAWN
-        };
-        int counter = 0;
-        for (int i = 0; i < 2; i++) {
-            for (int j = 0; j < 8; j++) {
-                squares[i][j] = new ChessPiece(ChessGame.TeamColor.WHITE, pieces[counter]);
-                counter++;
-            }
-        }
-        counter = 0;
-        for (int i = 7; i > 5; i--) {
-            for (int j = 0; j < 8; j++) {
-                squares[i][j] = new ChessPiece(ChessGame.TeamColor.BLACK, pieces[counter]);
-                counter++;
-            }
-        }
+        Fen.parseBoard(Fen.START_POSITION, this);
     }
 
     @Override
@@ -80,12 +116,16 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
+        // different keys always mean different boards; equal keys still need the full compare
+        if (getZobristKey() != that.getZobristKey()) {
+            return false;
+        }
         return Objects.deepEquals(squares, that.squares);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(getZobristKey());
     }
 
     @Override
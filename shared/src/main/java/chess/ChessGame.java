@@ -1,6 +1,7 @@
 package chess;
 
-import java.util.ArrayList;
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.Collection;
 import java.util.Objects;
 
@@ -10,9 +11,19 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGameCodec.GsonAdapterFactory.class)
 public class ChessGame {
+    // shared by every game so positions that repeat across games (e.g. openings) are only solved once
+    private static final LegalMoveCache LEGAL_MOVE_CACHE =
+            new LegalMoveCache(LegalMoveCache.configuredCapacity());
+
     private TeamColor teamTurn;
     public ChessBoard board;
+    // moves played since the start of the game
+    private int ply;
+    // scratch space for move generation; not reentrant, so only used by one call at a time
+    private transient MoveBuffer moveBuffer;
+    private transient UndoStack undoStack;
 
     public ChessGame() {
         this.teamTurn = TeamColor.WHITE;
@@ -20,6 +31,33 @@ public class ChessGame {
         this.board.resetBoard();
     }
 
+    /**
+     * Creates an independent copy of another game, including the moves it can
+     * take back with unmakeMove
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
+        this.teamTurn = other.teamTurn;
+        this.board = new ChessBoard(other.board);
+        this.ply = other.ply;
+        if (other.undoStack != null) {
+            this.undoStack = new UndoStack(other.undoStack);
+        }
+    }
+
+    /* builds a game around an existing board without setting up a new one first */
+    static ChessGame restore(ChessBoard board, TeamColor teamTurn, int ply) {
+        ChessGame game = new ChessGame(teamTurn, board);
+        game.ply = ply;
+        return game;
+    }
+
+    private ChessGame(TeamColor teamTurn, ChessBoard board) {
+        this.teamTurn = teamTurn;
+        this.board = board;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -44,6 +82,16 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * The state of one team after a move, as reported by evaluateStatus
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -53,21 +101,161 @@ public class ChessGame {
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         ChessPiece currentPiece = board.getPiece(startPosition);
+        if (currentPiece == null) {
+            return null;
+        }
+        MoveBuffer buffer = moveBuffer();
+        buffer.clear();
+        int from = BitBoard.square(startPosition);
+        BitBoard bits = board.getBitBoard();
+        long key = board.getZobristKey() ^ Zobrist.turnKey(currentPiece.getTeamColor());
+        int[] cached = LEGAL_MOVE_CACHE.get(key, bits);
+        if (cached == null) {
+            // only this piece's moves are needed, so don't generate and check the whole team
+            BitboardMoveGenerator.generate(bits, from, buffer);
+            keepLegalMoves(buffer, 0);
+            return buffer.toChessMoves();
+        }
+        for (int move : cached) {
+            if (PackedMove.from(move) == from) {
+                buffer.add(move);
+            }
+        }
+        return buffer.toChessMoves();
+    }
+
+    /**
+     * Appends every valid move for a team to a buffer as PackedMove ints,
+     * without allocating a ChessMove per move. Results are cached by position,
+     * so repeated calls on the same position are a lookup.
+     *
+     * @param teamColor the team to generate moves for
+     * @param buffer    where the moves are written
+     */
+    public void legalMoves(TeamColor teamColor, MoveBuffer buffer) {
+        long key = board.getZobristKey() ^ Zobrist.turnKey(teamColor);
+        int[] cached = LEGAL_MOVE_CACHE.get(key, board.getBitBoard());
+        if (cached != null) {
+            buffer.addAll(cached);
+            return;
+        }
+        int start = buffer.size();
+        BitboardMoveGenerator.generate(board.getBitBoard(), teamColor, buffer);
+        keepLegalMoves(buffer, start);
+        LEGAL_MOVE_CACHE.put(key, board.getBitBoard(), buffer.toArray(start));
+    }
 
-        Collection<ChessMove> moveList = new ArrayList<ChessMove>(currentPiece.pieceMoves(board, startPosition));
-        Collection<ChessMove> validMoves = new ArrayList<ChessMove>();
+    /**
+     * @return the legal move cache shared by all games, e.g. to read its hit rate
+     */
+    public static LegalMoveCache getLegalMoveCache() {
+        return LEGAL_MOVE_CACHE;
+    }
 
-        for (ChessMove move : moveList) {
-            // make move checks if each move is valid or not - if it is invalid, then remove it from moveList
-            try {
-                this.checkMove(move);
-                validMoves.add(move);
-            } catch (Exception InvalidMoveException) {
-                // move is invalid
+    /* compacts the buffer from start onwards down to the moves that don't leave the king in check */
+    private void keepLegalMoves(MoveBuffer buffer, int start) {
+        int kept = start;
+        for (int i = start; i < buffer.size(); i++) {
+            int move = buffer.get(i);
+            if (isLegal(move)) {
+                buffer.set(kept++, move);
             }
         }
+        buffer.truncate(kept);
+    }
+
+    /* plays a pseudo-legal move and reports whether the mover's king is left safe */
+    private boolean isLegal(int move) {
+        TeamColor mover = board.getPiece(BitBoard.position(PackedMove.from(move))).getTeamColor();
+        makeMove(move);
+        boolean legal = !isInCheck(mover);
+        unmakeMove();
+        return legal;
+    }
+
+    /**
+     * Plays a PackedMove without validating it and switches the turn. The move
+     * can be taken back with unmakeMove.
+     *
+     * @param move a pseudo-legal PackedMove, e.g. from BitboardMoveGenerator
+     */
+    public void makeMove(int move) {
+        ChessPosition start = BitBoard.position(PackedMove.from(move));
+        ChessPosition end = BitBoard.position(PackedMove.to(move));
+        ChessPiece currPiece = board.getPiece(start);
+        undoStack().push(move, currPiece, board.getPiece(end), teamTurn);
+
+        board.addPiece(start, null);
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        if (promotion != null) {
+            board.addPiece(end, new ChessPiece(currPiece.getTeamColor(), promotion));
+        } else {
+            board.addPiece(end, currPiece);
+        }
+        this.teamTurn = opposite(this.teamTurn);
+        ply++;
+    }
+
+    /**
+     * Takes back the most recent move played with makeMove, restoring the
+     * captured piece and the turn
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        UndoStack undo = undoStack();
+        if (undo.isEmpty()) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        int move = undo.move();
+        board.addPiece(BitBoard.position(PackedMove.from(move)), undo.moved());
+        board.addPiece(BitBoard.position(PackedMove.to(move)), undo.captured());
+        this.teamTurn = undo.turn();
+        undo.pop();
+        ply--;
+    }
 
-        return validMoves;
+    /**
+     * @return the number of moves played since the start of the game
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Lists the moves that took the game from an earlier ply to the current
+     * one, as far back as this instance remembers (moves played on it, or
+     * copied with it, since it was loaded)
+     *
+     * @param fromPly the earlier ply
+     * @return the PackedMove ints played after fromPly in order, or null if
+     * this game doesn't remember that far back
+     */
+    public int[] movesSince(int fromPly) {
+        int remembered = undoStack == null ? 0 : undoStack.size();
+        int firstRemembered = ply - remembered;
+        if (fromPly < firstRemembered || fromPly > ply) {
+            return null;
+        }
+        int[] moves = new int[ply - fromPly];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = undoStack.move(fromPly - firstRemembered + i);
+        }
+        return moves;
+    }
+
+    private UndoStack undoStack() {
+        if (undoStack == null) {
+            undoStack = new UndoStack();
+        }
+        return undoStack;
+    }
+
+    private MoveBuffer moveBuffer() {
+        if (moveBuffer == null) {
+            moveBuffer = new MoveBuffer();
+        }
+        return moveBuffer;
     }
 
     /**
@@ -90,74 +278,45 @@ public class ChessGame {
 
         try {
             checkMove(move);
-            board.addPiece(move.getStartPosition(), null);
-            if (move.getPromotionPiece() != null) {
-                board.addPiece(move.getEndPosition(), new ChessPiece(this.teamTurn, move.getPromotionPiece()));
-            } else {
-                board.addPiece(move.getEndPosition(), currPiece);
-            }
-            // set team turn color
-            if (this.teamTurn == TeamColor.WHITE) {
-                this.teamTurn = TeamColor.BLACK;
-            } else {
-                this.teamTurn = TeamColor.WHITE;
-            }
+            makeMove(PackedMove.fromChessMove(move));
         } catch (Exception InvalidMoveException) {
             throw new InvalidMoveException("Error: Invalid move. Try <highlight> to see valid moves");
         }
     }
 
     public void checkMove(ChessMove move) throws InvalidMoveException {
-        ChessPiece currPiece = board.getPiece(move.getStartPosition());
-        ChessPiece therePiece = null;
-
         if (move.getEndPosition().getColumn() > 8 || move.getEndPosition().getColumn() < 1 ||
             move.getEndPosition().getRow() > 8 || move.getEndPosition().getRow() < 1) {
             // end position is out of bounds
             throw new InvalidMoveException("Error: End position is out of bounds.");
         }
 
-        // get possible moves & check if endPosition matches possible moves
-        Collection<ChessMove> possibleMoves = board.getPiece(move.getStartPosition()).pieceMoves(board, move.getStartPosition());
-        boolean valid = false;
-        for (ChessMove m : possibleMoves) {
-            if (move.getEndPosition().getRow() == m.getEndPosition().getRow() &&
-                move.getEndPosition().getColumn() == m.getEndPosition().getColumn()) {
-                valid = true;
-                break;
-            }
-        }
-        if (!valid) {
+        // check if endPosition is one of the piece's possible moves
+        BitBoard bits = board.getBitBoard();
+        int from = BitBoard.square(move.getStartPosition());
+        ChessPiece currPiece = board.getPiece(move.getStartPosition());
+        long targets = BitboardMoveGenerator.targets(bits, from, currPiece.getPieceType(), currPiece.getTeamColor());
+        if ((targets & (1L << BitBoard.square(move.getEndPosition()))) == 0) {
             throw new InvalidMoveException("Error: Invalid move. Try <highlight> to see valid moves");
         }
 
-        if (board.getPiece(move.getEndPosition()) != null) {
-            // if there is a piece at end position, set therePiece to that piece
-            therePiece = board.getPiece(move.getEndPosition());
+        // a pawn reaching the last rank must promote, and nothing else may
+        int lastRow = currPiece.getTeamColor() == TeamColor.WHITE ? 8 : 1;
+        boolean promotes = currPiece.getPieceType() == ChessPiece.PieceType.PAWN
+                && move.getEndPosition().getRow() == lastRow;
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        if (promotes && promotion == null) {
+            throw new InvalidMoveException("Error: A pawn reaching the last rank needs a promotion piece.");
         }
-
-        // add temp pieces to board
-        board.addPiece(move.getEndPosition(), currPiece);
-        board.addPiece(move.getStartPosition(), null);
-
-        // if invalid move, throw exception
-        if (isInCheck(currPiece.getTeamColor()) || isInCheckmate(currPiece.getTeamColor())) {
-            // if in check or checkmate, undo those moves
-            board.addPiece(move.getStartPosition(), currPiece);
-            if (board.getPiece(move.getEndPosition()) != null) {
-                board.addPiece(move.getEndPosition(), therePiece);
-            } else {
-                board.addPiece(move.getEndPosition(), null);
-            }
-            throw new InvalidMoveException("Error: no more moves can be made");
+        if (!promotes && promotion != null) {
+            throw new InvalidMoveException("Error: Only a pawn reaching the last rank can promote.");
+        }
+        if (promotion == ChessPiece.PieceType.KING || promotion == ChessPiece.PieceType.PAWN) {
+            throw new InvalidMoveException("Error: A pawn cannot promote to a " + promotion + ".");
         }
 
-        // undo - the move is valid
-        board.addPiece(move.getStartPosition(), currPiece);
-        if (board.getPiece(move.getEndPosition()) != null) {
-            board.addPiece(move.getEndPosition(), therePiece);
-        } else {
-            board.addPiece(move.getEndPosition(), null);
+        if (!isLegal(PackedMove.fromChessMove(move))) {
+            throw new InvalidMoveException("Error: no more moves can be made");
         }
     }
 
@@ -168,28 +327,22 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        // find the position of the king
-        ChessPosition kingPosition = findKingPosition(teamColor);
-
-        if (kingPosition == null) {
+        int kingSquare = board.getBitBoard().kingSquare(teamColor);
+        if (kingSquare < 0) {
             return false;
         }
+        return board.getBitBoard().isAttacked(kingSquare, opposite(teamColor));
+    }
 
-        // find all the pieces on the opposite team
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPiece tempPiece = board.getPiece(new ChessPosition(i, j));
-                if (tempPiece != null && tempPiece.getTeamColor() != teamColor) {
-                    // call pieceMoves on each and see if the king is at the endPosition of the move
-                    Collection<ChessMove> moves = tempPiece.pieceMoves(board, new ChessPosition(i, j));
-                    if (kingAtEndPosition(moves, kingPosition)) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
+    /**
+     * Determines if any piece of a team could capture on the given position
+     *
+     * @param position the square to test
+     * @param byColor  the attacking team
+     * @return True if the position is attacked by byColor
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor byColor) {
+        return board.getBitBoard().isAttacked(BitBoard.square(position), byColor);
     }
 
     public boolean kingAtEndPosition (Collection<ChessMove> moves, ChessPosition kingPosition) {
@@ -211,17 +364,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        ChessPosition kingPosition = findKingPosition(teamColor);
-
-        if (kingPosition == null || !isInCheck(teamColor)) {
-            // no king on the board or king is not in check
-            return false;
-        }
-
-        Collection<ChessMove> validMoves = new ArrayList<>(this.findValidMovesForTeam(teamColor));
-
-        // if no valid moves - king is in checkmate
-        return validMoves.isEmpty();
+        return evaluateStatus(teamColor) == GameStatus.CHECKMATE;
     }
 
     /**
@@ -232,52 +375,74 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        // no valid moves but your king is not currently threatened
-        ChessPosition kingPosition = findKingPosition(teamColor);
+        return evaluateStatus(teamColor) == GameStatus.STALEMATE;
+    }
 
-        if (kingPosition == null || isInCheck(teamColor)) {
-            // no king on the board or king is in check
-            return false;
+    /**
+     * Determines check, checkmate and stalemate for a team in one pass. Whether
+     * the team has any valid move is answered by stopping at the first one found
+     * rather than listing them all.
+     *
+     * @param teamColor which team to evaluate
+     * @return the team's status; IN_PROGRESS if the team has no king on the board
+     */
+    public GameStatus evaluateStatus(TeamColor teamColor) {
+        if (board.getBitBoard().kingSquare(teamColor) < 0) {
+            return GameStatus.IN_PROGRESS;
         }
-
-        Collection<ChessMove> validMoves = new ArrayList<>(this.findValidMovesForTeam(teamColor));
-
-        // if no valid moves - king is in checkmate
-        return validMoves.isEmpty();
+        boolean inCheck = isInCheck(teamColor);
+        if (hasLegalMove(teamColor)) {
+            return inCheck ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+        }
+        return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
     }
 
-    public Collection<ChessMove> findValidMovesForTeam(TeamColor teamColor) {
-        Collection<ChessMove> validMoves = new ArrayList<>();
-
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPiece tempPiece = board.getPiece(new ChessPosition(i, j));
-                if (tempPiece != null && tempPiece.getTeamColor() == teamColor) {
-                    // call validMoves on each piece on current team
-                    validMoves.addAll(this.validMoves(new ChessPosition(i, j)));
-                }
+    private boolean hasLegalMove(TeamColor teamColor) {
+        long key = board.getZobristKey() ^ Zobrist.turnKey(teamColor);
+        int[] cached = LEGAL_MOVE_CACHE.get(key, board.getBitBoard());
+        if (cached != null) {
+            return cached.length > 0;
+        }
+        MoveBuffer buffer = moveBuffer();
+        buffer.clear();
+        BitboardMoveGenerator.generate(board.getBitBoard(), teamColor, buffer);
+        for (int i = 0; i < buffer.size(); i++) {
+            if (isLegal(buffer.get(i))) {
+                return true;
             }
         }
+        return false;
+    }
 
-        return validMoves;
+    public Collection<ChessMove> findValidMovesForTeam(TeamColor teamColor) {
+        MoveBuffer buffer = moveBuffer();
+        buffer.clear();
+        legalMoves(teamColor, buffer);
+        return buffer.toChessMoves();
     }
 
     public ChessPosition findKingPosition(TeamColor teamColor) {
-        ChessPosition kingPosition = null;
-
-        // find the position of the king
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPiece tempPiece = board.getPiece(new ChessPosition(i, j));
-                if (tempPiece != null && tempPiece.getPieceType() == ChessPiece.PieceType.KING &&
-                    tempPiece.getTeamColor() == teamColor) {
-                    kingPosition = new ChessPosition(i, j);
-                    break;
-                }
-            }
+        int kingSquare = board.getBitBoard().kingSquare(teamColor);
+        if (kingSquare < 0) {
+            return null;
         }
+        return BitBoard.position(kingSquare);
+    }
 
-        return kingPosition;
+    public static TeamColor opposite(TeamColor teamColor) {
+        return teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    /**
+     * Gets the Zobrist key of the position: the board's pieces plus whose turn
+     * it is. Equal positions always have equal keys, so the key can be used
+     * for position caches and repetition detection.
+     *
+     * @return the 64-bit Zobrist key
+     */
+    public long getZobristKey() {
+        long boardKey = board == null ? 0L : board.getZobristKey();
+        return boardKey ^ Zobrist.turnKey(teamTurn);
     }
 
     /**
@@ -287,6 +452,10 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        // moves played on the old board can't be taken back on this one
+        if (undoStack != null) {
+            undoStack.clear();
+        }
     }
 
     /**
@@ -312,6 +481,6 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(teamTurn, board);
+        return Long.hashCode(getZobristKey());
     }
 }
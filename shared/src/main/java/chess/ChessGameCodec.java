@@ -0,0 +1,165 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Compact encodings of a ChessGame, replacing Gson's field-by-field JSON.
+ * <p>
+ * The binary form is versioned so stored games stay readable as it evolves.
+ * Version 1 is 40 bytes: the version, a flags byte (bit 0 set when black is
+ * to move), two reserved bytes, the ply as a big-endian int, then 4 bits per
+ * square for squares 0-63, low nibble first, holding BitBoard.pieceIndex + 1
+ * (0 for an empty square).
+ * <p>
+ * The text form is FEN, read and written by Fen. FEN only carries the fullmove
+ * number, which gives back the ply exactly when the ply's parity matches the
+ * side to move, so every decoder here returns games with that parity.
+ */
+public class ChessGameCodec {
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    public static final int ENCODED_BYTES = HEADER_BYTES + 32;
+    private static final int FLAG_BLACK_TO_MOVE = 1;
+
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[ENCODED_BYTES];
+        bytes[0] = VERSION;
+        bytes[1] = (byte) (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? FLAG_BLACK_TO_MOVE : 0);
+        int ply = game.getPly();
+        bytes[4] = (byte) (ply >>> 24);
+        bytes[5] = (byte) (ply >>> 16);
+        bytes[6] = (byte) (ply >>> 8);
+        bytes[7] = (byte) ply;
+        BitBoard bits = game.getBoard().getBitBoard();
+        for (int square = 0; square < 64; square++) {
+            int code = bits.pieceIndexAt(square) + 1;
+            bytes[HEADER_BYTES + square / 2] |= (byte) ((square & 1) == 0 ? code : code << 4);
+        }
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes aren't a game in a version this codec reads
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes.length == 0 || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported game encoding version");
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Encoded game must be " + ENCODED_BYTES + " bytes");
+        }
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int packed = bytes[HEADER_BYTES + square / 2];
+            int code = ((square & 1) == 0 ? packed : packed >>> 4) & 0xF;
+            if (code > 12) {
+                throw new IllegalArgumentException("Invalid piece code " + code + " on square " + square);
+            }
+            if (code != 0) {
+                board.addPiece(BitBoard.position(square), BitBoard.piece(code - 1));
+            }
+        }
+        int ply = (bytes[4] & 0xFF) << 24 | (bytes[5] & 0xFF) << 16 | (bytes[6] & 0xFF) << 8 | (bytes[7] & 0xFF);
+        ChessGame.TeamColor turn = (bytes[1] & FLAG_BLACK_TO_MOVE) != 0
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return ChessGame.restore(board, turn, plyForTurn(ply, turn));
+    }
+
+    /**
+     * @return the game as a FEN string
+     */
+    public static String toText(ChessGame game) {
+        return Fen.toFen(game);
+    }
+
+    /**
+     * @param fen a FEN string; castling and en passant fields are ignored
+     * @throws IllegalArgumentException if the string isn't valid FEN
+     */
+    public static ChessGame fromText(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * @return the binary form as Base64, for text columns
+     */
+    public static String toStorage(ChessGame game) {
+        return Base64.getEncoder().encodeToString(encode(game));
+    }
+
+    /**
+     * Reads a game written by toStorage, or by Gson before this codec existed
+     */
+    public static ChessGame fromStorage(String stored) {
+        if (stored.startsWith("{")) {
+            return new Gson().fromJson(stored, ChessGame.class);
+        }
+        return decode(Base64.getDecoder().decode(stored));
+    }
+
+    /**
+     * Gson serializes ChessGame as its FEN string. Both that and the old
+     * object form are accepted when reading.
+     */
+    public static class GsonAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != ChessGame.class) {
+                return null;
+            }
+            // the reflective adapter, for games written as objects before this codec existed
+            TypeAdapter<ChessGame> legacy = (TypeAdapter<ChessGame>) gson.getDelegateAdapter(this, type);
+            return (TypeAdapter<T>) new TypeAdapter<ChessGame>() {
+                @Override
+                public void write(JsonWriter out, ChessGame game) throws IOException {
+                    if (game == null) {
+                        out.nullValue();
+                    } else {
+                        out.value(toText(game));
+                    }
+                }
+
+                @Override
+                public ChessGame read(JsonReader in) throws IOException {
+                    JsonToken token = in.peek();
+                    if (token == JsonToken.NULL) {
+                        in.nextNull();
+                        return null;
+                    }
+                    if (token == JsonToken.STRING) {
+                        return fromText(in.nextString());
+                    }
+                    return withPlyMatchingTurn(legacy.read(in));
+                }
+            };
+        }
+    }
+
+    /*
+     * Games stored as objects before ply was tracked read back as ply 0 whatever
+     * side is to move. Bump such a ply by one so it agrees with the FEN the game
+     * is sent as; otherwise server and client count moves differently.
+     */
+    private static ChessGame withPlyMatchingTurn(ChessGame game) {
+        if (game == null || game.getTeamTurn() == null) {
+            return game;
+        }
+        int ply = plyForTurn(game.getPly(), game.getTeamTurn());
+        return ply == game.getPly() ? game : ChessGame.restore(game.getBoard(), game.getTeamTurn(), ply);
+    }
+
+    private static int plyForTurn(int ply, ChessGame.TeamColor turn) {
+        int black = turn == ChessGame.TeamColor.BLACK ? 1 : 0;
+        return (ply & 1) == black ? ply : ply + 1;
+    }
+}
@@ -52,7 +52,7 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = PieceCalculatorHelper.calculatePieceMoves(board, myPosition);
+        Collection<ChessMove> moves = BitboardMoveGenerator.calculatePieceMoves(board, myPosition);
         return moves;
     }
 
@@ -0,0 +1,174 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * This engine has no castling or en passant, so those fields are read and
+ * ignored, and always written as "-". The halfmove clock is ignored and
+ * written as 0. The fullmove number maps to the game's ply.
+ * <p>
+ * Parsing walks the string once and writes every square straight into the
+ * board using shared ChessPiece and ChessPosition instances. Nothing is
+ * allocated unless the string is invalid, so large corpora can be loaded into
+ * a single reused board.
+ */
+public class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private static final String PIECE_LETTERS = "KQBNRPkqbnrp";
+
+    /**
+     * Parses a FEN string into a new game
+     *
+     * @throws IllegalArgumentException if the string isn't valid FEN
+     */
+    public static ChessGame parse(CharSequence fen) {
+        ChessBoard board = new ChessBoard();
+        int state = parseInto(fen, board);
+        ChessGame.TeamColor turn = (state & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return ChessGame.restore(board, turn, state >>> 1);
+    }
+
+    /**
+     * Overwrites every square of a board with the position in a FEN string.
+     * If the string is invalid the board may be left partly written.
+     *
+     * @param fen   the position to load
+     * @param board the board to write into
+     * @return the team to move
+     * @throws IllegalArgumentException if the string isn't valid FEN
+     */
+    public static ChessGame.TeamColor parseBoard(CharSequence fen, ChessBoard board) {
+        return (parseInto(fen, board) & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    /* returns ply << 1, plus 1 if black is to move */
+    private static int parseInto(CharSequence fen, ChessBoard board) {
+        int length = fen.length();
+        int i = skipSpaces(fen, 0);
+
+        // piece placement, row 8 first
+        for (int row = 8; row >= 1; row--) {
+            int col = 1;
+            while (col <= 8) {
+                if (i >= length) {
+                    throw invalid(fen, i, "piece placement ends early");
+                }
+                char c = fen.charAt(i++);
+                if (c >= '1' && c <= '8') {
+                    int end = col + (c - '0');
+                    if (end > 9) {
+                        throw invalid(fen, i - 1, "rank has more than 8 squares");
+                    }
+                    for (; col < end; col++) {
+                        board.addPiece(BitBoard.position(BitBoard.square(row, col)), null);
+                    }
+                } else {
+                    int index = PIECE_LETTERS.indexOf(c);
+                    if (index < 0) {
+                        throw invalid(fen, i - 1, "unexpected character '" + c + "'");
+                    }
+                    board.addPiece(BitBoard.position(BitBoard.square(row, col++)), BitBoard.piece(index));
+                }
+            }
+            if (row > 1 && (i >= length || fen.charAt(i++) != '/')) {
+                throw invalid(fen, i - 1, "expected '/' after 8 squares");
+            }
+        }
+
+        // side to move
+        int fieldStart = i;
+        i = skipSpaces(fen, i);
+        if (i == fieldStart || i >= length) {
+            throw invalid(fen, i, "missing side to move");
+        }
+        char side = fen.charAt(i++);
+        if (side != 'w' && side != 'b') {
+            throw invalid(fen, i - 1, "side to move must be 'w' or 'b'");
+        }
+        int black = side == 'b' ? 1 : 0;
+
+        // castling, en passant and halfmove clock are skipped; the fullmove number is optional
+        for (int field = 0; field < 3; field++) {
+            i = skipToken(fen, skipSpaces(fen, i));
+        }
+        i = skipSpaces(fen, i);
+        int fullMove = 0;
+        int digits = 0;
+        while (i < length && fen.charAt(i) >= '0' && fen.charAt(i) <= '9') {
+            fullMove = fullMove * 10 + (fen.charAt(i++) - '0');
+            digits++;
+        }
+        if (skipSpaces(fen, i) != length) {
+            throw invalid(fen, i, "unexpected trailing characters");
+        }
+        if (digits == 0) {
+            fullMove = 1;
+        }
+        int ply = Math.max(0, (fullMove - 1) * 2 + black);
+        return ply << 1 | black;
+    }
+
+    private static int skipSpaces(CharSequence fen, int i) {
+        while (i < fen.length() && fen.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipToken(CharSequence fen, int i) {
+        while (i < fen.length() && fen.charAt(i) != ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence fen, int index, String reason) {
+        return new IllegalArgumentException(String.format("Invalid FEN at index %d (%s): %s", index, reason, fen));
+    }
+
+    /**
+     * @return the game's position as a FEN string
+     */
+    public static String toFen(ChessGame game) {
+        StringBuilder fen = new StringBuilder(90);
+        appendFen(fen, game.getBoard(), game.getTeamTurn(), game.getPly());
+        return fen.toString();
+    }
+
+    /**
+     * Appends a position as FEN to a builder, so many positions can be written
+     * into one buffer
+     *
+     * @param fen      where to write
+     * @param board    the pieces
+     * @param teamTurn the team to move
+     * @param ply      moves played so far, written as the fullmove number
+     */
+    public static void appendFen(StringBuilder fen, ChessBoard board, ChessGame.TeamColor teamTurn, int ply) {
+        BitBoard bits = board.getBitBoard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                int index = bits.pieceIndexAt(BitBoard.square(row, col));
+                if (index < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(PIECE_LETTERS.charAt(index));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(teamTurn == ChessGame.TeamColor.BLACK ? " b" : " w");
+        fen.append(" - - 0 ").append(ply / 2 + 1);
+    }
+}
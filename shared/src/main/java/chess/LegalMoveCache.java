@@ -0,0 +1,152 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of legal moves keyed by Zobrist key.
+ * <p>
+ * Entries map a position (pieces plus the team whose moves were generated) to
+ * that team's legal moves as PackedMove ints. The cache is split into
+ * segments, each a small LRU map behind its own lock, so games on different
+ * threads rarely contend. Each entry also keeps the piece placement it was
+ * generated for, and a lookup only hits when the board still matches it, so
+ * two positions that share a 64-bit key can never see each other's moves.
+ */
+public class LegalMoveCache {
+    private static final int SEGMENTS = 16;
+    // system property that sizes the cache shared by every ChessGame
+    static final String SIZE_PROPERTY = "chess.legalMoveCache.size";
+    static final int DEFAULT_CAPACITY = 65536;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int perSegment;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /* the moves together with the twelve piece masks of the position they were generated for */
+    private record Entry(long[] placement, int[] moves) {
+    }
+
+    private class Segment extends LinkedHashMap<Long, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param capacity the most positions to keep; least recently used positions are evicted first
+     */
+    public LegalMoveCache(int capacity) {
+        perSegment = Math.max(1, capacity / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * @return the capacity set by the chess.legalMoveCache.size system property, or 65536 if it isn't set
+     */
+    static int configuredCapacity() {
+        return Integer.getInteger(SIZE_PROPERTY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return the most positions the cache holds, after rounding to a whole number per segment
+     */
+    public int capacity() {
+        return perSegment * SEGMENTS;
+    }
+
+    /**
+     * @param key  the position's Zobrist key
+     * @param bits the board the key was computed from
+     * @return the cached moves for the key, or null on a miss or when the entry
+     * was stored for a different placement with the same key. The array is
+     * shared and must not be modified.
+     */
+    public int[] get(long key, BitBoard bits) {
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry == null || !bits.hasPlacement(entry.placement())) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.moves();
+    }
+
+    /**
+     * @param key   the position's Zobrist key
+     * @param bits  the board the moves were generated on
+     * @param moves the legal moves; the array must not be modified afterwards
+     */
+    public void put(long key, BitBoard bits, int[] moves) {
+        Entry entry = new Entry(bits.placement(), moves);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return hits / (hits + misses), or 0 if nothing has been looked up yet
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private Segment segmentFor(long key) {
+        // the low bits of a Zobrist key are as random as the high ones
+        return segments[(int) (key & (SEGMENTS - 1))];
+    }
+}
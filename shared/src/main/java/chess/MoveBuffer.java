@@ -0,0 +1,85 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A reusable list of PackedMove ints. Callers keep one buffer around and
+ * clear it between generations instead of allocating a new collection.
+ */
+public class MoveBuffer {
+    // no legal chess position has more than 218 moves
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveBuffer(int capacity) {
+        this.moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public void addAll(int[] packedMoves) {
+        if (size + packedMoves.length > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(size * 2, size + packedMoves.length));
+        }
+        System.arraycopy(packedMoves, 0, moves, size, packedMoves.length);
+        size += packedMoves.length;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Drops every move at or after newSize
+     */
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * @return a copy of the moves from fromIndex to the end of the buffer
+     */
+    public int[] toArray(int fromIndex) {
+        return Arrays.copyOfRange(moves, fromIndex, size);
+    }
+
+    /**
+     * Materializes the buffered moves as ChessMoves
+     */
+    public Collection<ChessMove> toChessMoves() {
+        Collection<ChessMove> moveList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            moveList.add(PackedMove.toChessMove(moves[i]));
+        }
+        return moveList;
+    }
+}
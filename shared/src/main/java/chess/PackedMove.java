@@ -0,0 +1,54 @@
+package chess;
+
+/**
+ * Encodes a chess move in a single int so move generation can write into a
+ * MoveBuffer without allocating a ChessMove and two ChessPositions per move.
+ * <p>
+ * Layout: bits 0-5 start square, bits 6-11 end square (BitBoard numbering),
+ * bits 12-14 promotion piece (PieceType ordinal + 1, 0 for none), bits 15 and
+ * up flags.
+ */
+public class PackedMove {
+    public static final int FLAG_CAPTURE = 1 << 15;
+    public static final int FLAG_DOUBLE_PUSH = 1 << 16;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionCode = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionCode << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionCode = (move >>> 12) & 0x7;
+        return promotionCode == 0 ? null : TYPES[promotionCode - 1];
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(BitBoard.position(from(move)), BitBoard.position(to(move)), promotion(move));
+    }
+
+    /**
+     * Packs a ChessMove. Flags are not recovered, so the result only carries
+     * start, end and promotion piece.
+     */
+    public static int fromChessMove(ChessMove move) {
+        return of(BitBoard.square(move.getStartPosition()), BitBoard.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+}
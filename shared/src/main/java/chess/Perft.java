@@ -0,0 +1,144 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft").
+ * Known counts for standard positions make this a correctness check for move
+ * generation, and nodes per second make it a throughput benchmark.
+ * <p>
+ * The walk uses BitboardMoveGenerator with make/unmake directly and does not
+ * go through the legal move cache, since almost every node is a new position.
+ */
+public class Perft {
+
+    /**
+     * @param game  the position to start from; restored before returning
+     * @param depth number of plies to search
+     * @return the number of positions reached after exactly depth plies
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveBuffer[] buffers = new MoveBuffer[depth];
+        for (int i = 0; i < depth; i++) {
+            buffers[i] = new MoveBuffer();
+        }
+        return perft(game, depth, buffers);
+    }
+
+    /**
+     * Same as perft(game, depth), but each root move's subtree is searched as
+     * a separate task on the pool
+     *
+     * @param game  the position to start from; not modified
+     * @param depth number of plies to search
+     * @param pool  the pool to run subtree searches on
+     * @return the number of positions reached after exactly depth plies
+     */
+    public static long perft(ChessGame game, int depth, ForkJoinPool pool) {
+        if (depth <= 1) {
+            return perft(game, depth);
+        }
+        return pool.invoke(new RootTask(game, depth));
+    }
+
+    /**
+     * Lists the node count below each legal root move, which narrows a wrong
+     * total down to the move whose subtree is off
+     *
+     * @return node count per root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        MoveBuffer rootMoves = new MoveBuffer();
+        generateLegal(game, rootMoves);
+        for (int i = 0; i < rootMoves.size(); i++) {
+            game.makeMove(rootMoves.get(i));
+            counts.put(PackedMove.toChessMove(rootMoves.get(i)), perft(game, depth - 1));
+            game.unmakeMove();
+        }
+        return counts;
+    }
+
+    private static long perft(ChessGame game, int depth, MoveBuffer[] buffers) {
+        MoveBuffer moves = buffers[depth - 1];
+        moves.clear();
+        BitboardMoveGenerator.generate(game.getBoard().getBitBoard(), game.getTeamTurn(), moves);
+        ChessGame.TeamColor mover = game.getTeamTurn();
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            if (!game.isInCheck(mover)) {
+                nodes += depth == 1 ? 1 : perft(game, depth - 1, buffers);
+            }
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static void generateLegal(ChessGame game, MoveBuffer buffer) {
+        ChessGame.TeamColor mover = game.getTeamTurn();
+        MoveBuffer pseudoLegal = new MoveBuffer();
+        BitboardMoveGenerator.generate(game.getBoard().getBitBoard(), mover, pseudoLegal);
+        for (int i = 0; i < pseudoLegal.size(); i++) {
+            game.makeMove(pseudoLegal.get(i));
+            if (!game.isInCheck(mover)) {
+                buffer.add(pseudoLegal.get(i));
+            }
+            game.unmakeMove();
+        }
+    }
+
+    /* forks one SubtreeTask per legal root move and sums them */
+    private static class RootTask extends RecursiveTask<Long> {
+        private final ChessGame game;
+        private final int depth;
+
+        RootTask(ChessGame game, int depth) {
+            this.game = game;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            MoveBuffer rootMoves = new MoveBuffer();
+            generateLegal(game, rootMoves);
+            List<SubtreeTask> subtrees = new ArrayList<>();
+            for (int i = 0; i < rootMoves.size(); i++) {
+                // each task gets its own copy of the game so they can make/unmake independently
+                ChessGame copy = new ChessGame(game);
+                copy.makeMove(rootMoves.get(i));
+                subtrees.add(new SubtreeTask(copy, depth - 1));
+            }
+            invokeAll(subtrees);
+            long nodes = 0;
+            for (SubtreeTask subtree : subtrees) {
+                nodes += subtree.join();
+            }
+            return nodes;
+        }
+    }
+
+    private static class SubtreeTask extends RecursiveTask<Long> {
+        private final ChessGame game;
+        private final int depth;
+
+        SubtreeTask(ChessGame game, int depth) {
+            this.game = game;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            return perft(game, depth);
+        }
+    }
+}
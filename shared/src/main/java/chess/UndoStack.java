@@ -0,0 +1,86 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Everything ChessGame.unmakeMove needs to take back a move in constant time:
+ * the PackedMove itself, the piece that moved (so a promotion turns back into
+ * a pawn), the piece it captured and whose turn it was.
+ */
+class UndoStack {
+    private int[] moves = new int[16];
+    private ChessPiece[] moved = new ChessPiece[16];
+    private ChessPiece[] captured = new ChessPiece[16];
+    private ChessGame.TeamColor[] turns = new ChessGame.TeamColor[16];
+    private int size;
+
+    UndoStack() {
+    }
+
+    UndoStack(UndoStack other) {
+        moves = other.moves.clone();
+        moved = other.moved.clone();
+        captured = other.captured.clone();
+        turns = other.turns.clone();
+        size = other.size;
+    }
+
+    void push(int move, ChessPiece movedPiece, ChessPiece capturedPiece, ChessGame.TeamColor turn) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+            moved = Arrays.copyOf(moved, size * 2);
+            captured = Arrays.copyOf(captured, size * 2);
+            turns = Arrays.copyOf(turns, size * 2);
+        }
+        moves[size] = move;
+        moved[size] = movedPiece;
+        captured[size] = capturedPiece;
+        turns[size] = turn;
+        size++;
+    }
+
+    /* the accessors below all read the top entry */
+
+    int move() {
+        return moves[size - 1];
+    }
+
+    ChessPiece moved() {
+        return moved[size - 1];
+    }
+
+    ChessPiece captured() {
+        return captured[size - 1];
+    }
+
+    ChessGame.TeamColor turn() {
+        return turns[size - 1];
+    }
+
+    /**
+     * @return the move at a depth in the stack, 0 being the oldest
+     */
+    int move(int index) {
+        return moves[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void pop() {
+        size--;
+        moved[size] = null;
+        captured[size] = null;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        Arrays.fill(moved, 0, size, null);
+        Arrays.fill(captured, 0, size, null);
+        size = 0;
+    }
+}
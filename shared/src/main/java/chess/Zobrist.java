@@ -0,0 +1,38 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys for Zobrist hashing. A position's key is the XOR of the
+ * key for every (piece, square) pair on the board, plus SIDE_TO_MOVE when it is
+ * black's turn, so moving a piece only takes a couple of XORs to update.
+ */
+public class Zobrist {
+    // fixed seed so keys are identical across JVMs and can be stored or compared between servers
+    private static final long SEED = 0x2F0B_C4E5_5L;
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    public static final long SIDE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = random.nextLong();
+            }
+        }
+        SIDE_TO_MOVE = random.nextLong();
+    }
+
+    /**
+     * @param pieceIndex BitBoard.pieceIndex of the piece
+     * @param square     BitBoard square the piece is on
+     */
+    public static long pieceKey(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    public static long turnKey(ChessGame.TeamColor teamTurn) {
+        return teamTurn == ChessGame.TeamColor.BLACK ? SIDE_TO_MOVE : 0L;
+    }
+}
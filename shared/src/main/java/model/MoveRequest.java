@@ -0,0 +1,9 @@
+package model;
+
+import chess.ChessMove;
+
+/**
+ * A single move for the server to validate and apply, in place of uploading the whole game
+ */
+public record MoveRequest(int gameID, ChessMove move) {
+}
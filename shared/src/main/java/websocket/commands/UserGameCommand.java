@@ -21,9 +21,18 @@ public class UserGameCommand {
     private final String[] moveMade;
     private final ChessGame gameToUpdate;
     private final ChessMove move;
+    private final Boolean deltaUpdates;
 
     public UserGameCommand(CommandType commandType, String authToken, Integer gameID, String visitorName, String visitorColor,
                 String[] moveMade, ChessGame gameToUpdate, ChessMove move) {
+        this(commandType, authToken, gameID, visitorName, visitorColor, moveMade, gameToUpdate, move, null);
+    }
+
+    /**
+     * @param deltaUpdates on CONNECT, asks for MOVE_APPLIED messages instead of a full LOAD_GAME after every move
+     */
+    public UserGameCommand(CommandType commandType, String authToken, Integer gameID, String visitorName, String visitorColor,
+                String[] moveMade, ChessGame gameToUpdate, ChessMove move, Boolean deltaUpdates) {
         this.commandType = commandType;
         this.authToken = authToken;
         this.gameID = gameID;
@@ -32,13 +41,18 @@ public class UserGameCommand {
         this.moveMade = moveMade;
         this.gameToUpdate = gameToUpdate;
         this.move = move;
+        this.deltaUpdates = deltaUpdates;
     }
 
     public enum CommandType {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        /**
+         * Asks for a fresh LOAD_GAME, e.g. after a client sees a gap in MOVE_APPLIED plies
+         */
+        SYNC
     }
 
     public CommandType getCommandType() {
@@ -69,6 +83,10 @@ public class UserGameCommand {
         return gameToUpdate;
     }
 
+    public boolean wantsDeltaUpdates() {
+        return Boolean.TRUE.equals(deltaUpdates);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
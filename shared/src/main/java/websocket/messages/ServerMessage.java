@@ -1,5 +1,6 @@
 package websocket.messages;
 
+import chess.ChessMove;
 import model.GameData;
 import model.ModifiedGameData;
 
@@ -17,11 +18,21 @@ public class ServerMessage {
     String visitorName;
     String fields = ""; //json string representation of fields
     ModifiedGameData game = null;
+    // MOVE_APPLIED only: the move, the game's ply after it, and the resulting ChessGame.GameStatus
+    ChessMove move = null;
+    Integer ply = null;
+    String status = null;
+    Integer isOver = null;
 
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        /**
+         * One move applied to the game, sent instead of LOAD_GAME to clients
+         * that asked for delta updates when they connected
+         */
+        MOVE_APPLIED
     }
 
     public ServerMessage(String visitorName, ServerMessageType type) {
@@ -57,6 +68,25 @@ public class ServerMessage {
         return game;
     }
 
+    public ChessMove getMove() {
+        return move;
+    }
+
+    /**
+     * @return the game's ply once the move has been made, or null if this is not a MOVE_APPLIED message
+     */
+    public Integer getPly() {
+        return ply;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isGameOver() {
+        return isOver != null && isOver == 1;
+    }
+
     public String getJsonFields() {
         return this.fields;
     }
@@ -0,0 +1,127 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class AttackLookupTests {
+    private static final int GAMES = 60;
+    private static final int MAX_PLY = 200;
+    private static final int[][] ORTHOGONAL = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] DIAGONAL = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] KNIGHT = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    /* every square attacked by byColor, found by walking each piece's moves over the 8x8 grid */
+    private static long attackedSquares(ChessBoard board, ChessGame.TeamColor byColor) {
+        long attacked = 0L;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null || piece.getTeamColor() != byColor) {
+                    continue;
+                }
+                switch (piece.getPieceType()) {
+                    case PAWN -> {
+                        int forward = byColor == ChessGame.TeamColor.WHITE ? 1 : -1;
+                        attacked |= step(row + forward, col - 1) | step(row + forward, col + 1);
+                    }
+                    case KNIGHT -> attacked |= steps(row, col, KNIGHT);
+                    case KING -> attacked |= steps(row, col, ORTHOGONAL) | steps(row, col, DIAGONAL);
+                    case ROOK -> attacked |= rays(board, row, col, ORTHOGONAL);
+                    case BISHOP -> attacked |= rays(board, row, col, DIAGONAL);
+                    case QUEEN -> attacked |= rays(board, row, col, ORTHOGONAL) | rays(board, row, col, DIAGONAL);
+                }
+            }
+        }
+        return attacked;
+    }
+
+    private static long step(int row, int col) {
+        return onBoard(row, col) ? 1L << BitBoard.square(row, col) : 0L;
+    }
+
+    private static long steps(int row, int col, int[][] offsets) {
+        long attacked = 0L;
+        for (int[] offset : offsets) {
+            attacked |= step(row + offset[0], col + offset[1]);
+        }
+        return attacked;
+    }
+
+    private static long rays(ChessBoard board, int row, int col, int[][] directions) {
+        long attacked = 0L;
+        for (int[] d : directions) {
+            int r = row + d[0];
+            int c = col + d[1];
+            while (onBoard(r, c)) {
+                attacked |= 1L << BitBoard.square(r, c);
+                if (board.getPiece(new ChessPosition(r, c)) != null) {
+                    break;
+                }
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return attacked;
+    }
+
+    private static int scanForKing(ChessBoard board, ChessGame.TeamColor color) {
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(BitBoard.position(square));
+            if (piece != null && piece.getTeamColor() == color && piece.getPieceType() == ChessPiece.PieceType.KING) {
+                return square;
+            }
+        }
+        return -1;
+    }
+
+    private static void assertLookupsMatch(ChessGame game, String context) {
+        ChessBoard board = game.getBoard();
+        BitBoard bits = board.getBitBoard();
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int king = scanForKing(board, color);
+            Assertions.assertEquals(king, bits.kingSquare(color), "King square wrong " + context);
+            long attacked = attackedSquares(board, color);
+            for (int square = 0; square < 64; square++) {
+                boolean expected = (attacked & (1L << square)) != 0;
+                Assertions.assertEquals(expected, bits.isAttacked(square, color),
+                        "isAttacked(" + square + ", " + color + ") wrong " + context);
+            }
+            int enemyKing = scanForKing(board, ChessGame.opposite(color));
+            Assertions.assertEquals((attacked & (1L << enemyKing)) != 0, game.isInCheck(ChessGame.opposite(color)),
+                    "isInCheck(" + ChessGame.opposite(color) + ") wrong " + context);
+        }
+    }
+
+    @Test
+    @DisplayName("Attack Lookup Matches Brute Force")
+    public void randomGames() {
+        SplittableRandom random = new SplittableRandom(5);
+        MoveBuffer buffer = new MoveBuffer();
+        for (int g = 0; g < GAMES; g++) {
+            ChessGame game = new ChessGame();
+            int played = 0;
+            while (played < MAX_PLY) {
+                assertLookupsMatch(game, "at ply " + played + " of game " + g);
+                buffer.clear();
+                game.legalMoves(game.getTeamTurn(), buffer);
+                if (buffer.isEmpty()) {
+                    break;
+                }
+                game.makeMove(buffer.get(random.nextInt(buffer.size())));
+                played++;
+            }
+            // king squares and attacks must also come back on the way down
+            for (int ply = played - 1; ply >= 0; ply--) {
+                game.unmakeMove();
+                assertLookupsMatch(game, "after unmaking to ply " + ply + " of game " + g);
+            }
+        }
+    }
+}
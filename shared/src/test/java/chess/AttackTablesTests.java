@@ -0,0 +1,70 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class AttackTablesTests {
+    private static final int[][] ROOK = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] KNIGHT = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+    /* walks each ray one square at a time, stopping on (and including) the first blocker */
+    private static long walk(int square, long occupied, int[][] directions, boolean slide) {
+        long attacks = 0L;
+        for (int[] d : directions) {
+            int row = BitBoard.row(square) + d[0];
+            int col = BitBoard.column(square) + d[1];
+            while (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+                long bit = 1L << BitBoard.square(row, col);
+                attacks |= bit;
+                if (!slide || (occupied & bit) != 0) {
+                    break;
+                }
+                row += d[0];
+                col += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    @Test
+    @DisplayName("Sliding Lookups Match Ray Walking")
+    public void slidingAttacks() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int square = 0; square < 64; square++) {
+            for (int i = 0; i < 500; i++) {
+                // sparse and dense occupancies both, with the piece's own square sometimes set
+                long occupied = random.nextLong() & random.nextLong();
+                if (i % 2 == 0) {
+                    occupied &= random.nextLong();
+                }
+                long rook = walk(square, occupied, ROOK, true);
+                long bishop = walk(square, occupied, BISHOP, true);
+                Assertions.assertEquals(rook, AttackTables.rookAttacks(square, occupied),
+                        "Rook attacks wrong on " + square + " with occupancy " + Long.toHexString(occupied));
+                Assertions.assertEquals(bishop, AttackTables.bishopAttacks(square, occupied),
+                        "Bishop attacks wrong on " + square + " with occupancy " + Long.toHexString(occupied));
+                Assertions.assertEquals(rook | bishop, AttackTables.queenAttacks(square, occupied));
+            }
+            Assertions.assertEquals(walk(square, 0L, ROOK, true), AttackTables.rookAttacks(square, 0L));
+            Assertions.assertEquals(walk(square, -1L, BISHOP, true), AttackTables.bishopAttacks(square, -1L));
+        }
+    }
+
+    @Test
+    @DisplayName("Leaper Lookups Match Offsets")
+    public void leaperAttacks() {
+        for (int square = 0; square < 64; square++) {
+            Assertions.assertEquals(walk(square, 0L, KNIGHT, false), AttackTables.knightAttacks(square));
+            Assertions.assertEquals(walk(square, 0L, KING, false), AttackTables.kingAttacks(square));
+            Assertions.assertEquals(walk(square, 0L, new int[][]{{1, 1}, {1, -1}}, false),
+                    AttackTables.pawnAttacks(ChessGame.TeamColor.WHITE, square));
+            Assertions.assertEquals(walk(square, 0L, new int[][]{{-1, 1}, {-1, -1}}, false),
+                    AttackTables.pawnAttacks(ChessGame.TeamColor.BLACK, square));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class BitBoardTests {
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+
+    /* checks every mask and the mailbox against the board's 8x8 grid */
+    private static void assertMatchesGrid(ChessBoard board) {
+        BitBoard bits = board.getBitBoard();
+        long[] expected = new long[12];
+        long[] colors = new long[2];
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(BitBoard.position(square));
+            if (piece == null) {
+                Assertions.assertEquals(-1, bits.pieceIndexAt(square), "Mailbox not empty at " + square);
+                Assertions.assertFalse(bits.isOccupied(square));
+                continue;
+            }
+            int index = BitBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            Assertions.assertEquals(index, bits.pieceIndexAt(square), "Mailbox wrong at " + square);
+            Assertions.assertTrue(bits.isOccupied(square));
+            expected[index] |= 1L << square;
+            colors[piece.getTeamColor().ordinal()] |= 1L << square;
+        }
+        for (ChessGame.TeamColor color : COLORS) {
+            for (ChessPiece.PieceType type : TYPES) {
+                Assertions.assertEquals(expected[BitBoard.pieceIndex(color, type)], bits.pieces(color, type),
+                        "Mask wrong for " + color + " " + type);
+            }
+            Assertions.assertEquals(colors[color.ordinal()], bits.occupancy(color));
+        }
+        Assertions.assertEquals(colors[0] | colors[1], bits.occupied());
+    }
+
+    @Test
+    @DisplayName("Square Numbering Round Trips")
+    public void squareNumbering() {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                int square = BitBoard.square(row, col);
+                Assertions.assertEquals(row, BitBoard.row(square));
+                Assertions.assertEquals(col, BitBoard.column(square));
+                Assertions.assertEquals(new ChessPosition(row, col), BitBoard.position(square));
+            }
+        }
+        Assertions.assertEquals(0, BitBoard.square(1, 1));
+        Assertions.assertEquals(63, BitBoard.square(8, 8));
+    }
+
+    @Test
+    @DisplayName("Masks Follow Added And Removed Pieces")
+    public void randomEdits() {
+        SplittableRandom random = new SplittableRandom(1);
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 5000; i++) {
+            ChessPosition position = BitBoard.position(random.nextInt(64));
+            // a quarter of the edits empty the square, the rest place or replace a piece
+            ChessPiece piece = random.nextInt(4) == 0 ? null
+                    : new ChessPiece(COLORS[random.nextInt(2)], TYPES[random.nextInt(TYPES.length)]);
+            board.addPiece(position, piece);
+            assertMatchesGrid(board);
+        }
+    }
+
+    @Test
+    @DisplayName("Reset Board Reindexes")
+    public void resetBoard() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        assertMatchesGrid(board);
+        board.resetBoard();
+        assertMatchesGrid(board);
+        Assertions.assertEquals(0xFFFFL | 0xFFFFL << 48, board.getBitBoard().occupied());
+        Assertions.assertEquals(-1, board.getBitBoard().pieceIndexAt(BitBoard.square(4, 4)));
+    }
+}
@@ -0,0 +1,121 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ChessGameCodecTests {
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private static ChessGame playedGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 4), null));
+        return game;
+    }
+
+    @Test
+    @DisplayName("Binary Round Trip")
+    public void binaryRoundTrip() throws InvalidMoveException {
+        ChessGame game = playedGame();
+        byte[] encoded = ChessGameCodec.encode(game);
+        Assertions.assertEquals(ChessGameCodec.ENCODED_BYTES, encoded.length);
+
+        ChessGame decoded = ChessGameCodec.decode(encoded);
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(game.getPly(), decoded.getPly());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Unknown Version Rejected")
+    public void unknownVersion() {
+        byte[] encoded = ChessGameCodec.encode(new ChessGame());
+        encoded[0] = 99;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(encoded));
+    }
+
+    @Test
+    @DisplayName("FEN Text Form")
+    public void fenText() throws InvalidMoveException {
+        Assertions.assertEquals(START_FEN, ChessGameCodec.toText(new ChessGame()));
+        Assertions.assertEquals(new ChessGame(), ChessGameCodec.fromText(START_FEN));
+
+        ChessGame game = playedGame();
+        String fen = ChessGameCodec.toText(game);
+        Assertions.assertEquals("rnbqkbnr/ppp1pppp/8/3P4/8/8/PPPP1PPP/RNBQKBNR b - - 0 2", fen);
+        ChessGame parsed = ChessGameCodec.fromText(fen);
+        Assertions.assertEquals(game, parsed);
+        Assertions.assertEquals(3, parsed.getPly());
+    }
+
+    @Test
+    @DisplayName("Invalid FEN Rejected")
+    public void invalidFen() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ChessGameCodec.fromText("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ChessGameCodec.fromText("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ChessGameCodec.fromText("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x - - 0 1"));
+    }
+
+    @Test
+    @DisplayName("Gson Uses Text Form And Reads Legacy Objects")
+    public void gsonAdapter() throws InvalidMoveException {
+        Gson gson = new Gson();
+        ChessGame game = playedGame();
+        String json = gson.toJson(game);
+        Assertions.assertEquals("\"" + ChessGameCodec.toText(game) + "\"", json);
+        Assertions.assertEquals(game, gson.fromJson(json, ChessGame.class));
+
+        // the object form Gson wrote before the adapter existed
+        String legacy = "{\"teamTurn\":\"BLACK\",\"board\":" + gson.toJson(game.getBoard()) + "}";
+        Assertions.assertTrue(legacy.length() > 10 * ChessGameCodec.toStorage(game).length());
+        Assertions.assertEquals(game, gson.fromJson(legacy, ChessGame.class));
+        Assertions.assertEquals(game, ChessGameCodec.fromStorage(legacy));
+    }
+
+    @Test
+    @DisplayName("Storage Round Trip")
+    public void storageRoundTrip() throws InvalidMoveException {
+        ChessGame game = playedGame();
+        Assertions.assertEquals(game, ChessGameCodec.fromStorage(ChessGameCodec.toStorage(game)));
+    }
+
+    @Test
+    @DisplayName("Legacy Game Ply Matches Side To Move")
+    public void legacyPlyParity() throws InvalidMoveException {
+        Gson gson = new Gson();
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        // written before ply existed: black to move, but no ply field at all
+        String legacy = "{\"teamTurn\":\"BLACK\",\"board\":" + gson.toJson(board) + "}";
+
+        ChessGame server = ChessGameCodec.fromStorage(legacy);
+        Assertions.assertEquals(1, server.getPly());
+        ChessGame client = gson.fromJson(gson.toJson(server), ChessGame.class);
+        Assertions.assertEquals(server.getPly(), client.getPly());
+
+        // after black replies both sides agree on the ply of the move
+        ChessMove reply = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        server.makeMove(reply);
+        client.makeMove(reply);
+        Assertions.assertEquals(2, server.getPly());
+        Assertions.assertEquals(server.getPly(), client.getPly());
+        Assertions.assertEquals(server.getPly(), ChessGameCodec.decode(ChessGameCodec.encode(server)).getPly());
+    }
+
+    @Test
+    @DisplayName("Binary Ply Corrected To Side To Move")
+    public void binaryPlyParity() {
+        ChessGame game = new ChessGame();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(0, game.getPly());
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        Assertions.assertEquals(1, decoded.getPly());
+        Assertions.assertEquals(decoded.getPly(), Fen.parse(Fen.toFen(decoded)).getPly());
+    }
+}
@@ -0,0 +1,117 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class EvaluateStatusTests {
+    private static final int GAMES = 150;
+    private static final int MAX_PLY = 300;
+
+    private static ChessBoard copy(ChessBoard board) {
+        ChessBoard copy = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPosition position = BitBoard.position(square);
+            copy.addPiece(position, board.getPiece(position));
+        }
+        return copy;
+    }
+
+    private static ChessPosition findKing(ChessBoard board, ChessGame.TeamColor color) {
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(BitBoard.position(square));
+            if (piece != null && piece.getTeamColor() == color && piece.getPieceType() == ChessPiece.PieceType.KING) {
+                return BitBoard.position(square);
+            }
+        }
+        return null;
+    }
+
+    /* in check if any enemy piece's own move list ends on the king */
+    private static boolean kingAttacked(ChessBoard board, ChessGame.TeamColor color) {
+        ChessPosition king = findKing(board, color);
+        for (int square = 0; square < 64; square++) {
+            ChessPosition position = BitBoard.position(square);
+            ChessPiece piece = board.getPiece(position);
+            if (piece == null || piece.getTeamColor() == color) {
+                continue;
+            }
+            for (ChessMove move : piece.pieceMoves(board, position)) {
+                if (move.getEndPosition().equals(king)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /* tries every piece move on a fresh copy of the grid, without make/unmake or the move cache */
+    private static ChessGame.GameStatus bruteForceStatus(ChessBoard board, ChessGame.TeamColor color) {
+        boolean inCheck = kingAttacked(board, color);
+        for (int square = 0; square < 64; square++) {
+            ChessPosition position = BitBoard.position(square);
+            ChessPiece piece = board.getPiece(position);
+            if (piece == null || piece.getTeamColor() != color) {
+                continue;
+            }
+            for (ChessMove move : piece.pieceMoves(board, position)) {
+                ChessBoard after = copy(board);
+                after.addPiece(move.getStartPosition(), null);
+                after.addPiece(move.getEndPosition(), move.getPromotionPiece() == null ? piece
+                        : new ChessPiece(color, move.getPromotionPiece()));
+                if (!kingAttacked(after, color)) {
+                    return inCheck ? ChessGame.GameStatus.CHECK : ChessGame.GameStatus.IN_PROGRESS;
+                }
+            }
+        }
+        return inCheck ? ChessGame.GameStatus.CHECKMATE : ChessGame.GameStatus.STALEMATE;
+    }
+
+    @Test
+    @DisplayName("Status Matches Brute Force")
+    public void randomGames() {
+        SplittableRandom random = new SplittableRandom(8);
+        MoveBuffer buffer = new MoveBuffer();
+        int[] seen = new int[ChessGame.GameStatus.values().length];
+
+        for (int g = 0; g < GAMES; g++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < MAX_PLY; ply++) {
+                for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                    ChessGame.GameStatus expected = bruteForceStatus(game.getBoard(), color);
+                    Assertions.assertEquals(expected, game.evaluateStatus(color),
+                            color + " status wrong at ply " + ply + " of game " + g + "\n" + game.getBoard());
+                    // a second call may be answered from the move cache and must agree
+                    Assertions.assertEquals(expected, game.evaluateStatus(color));
+                    if (color == game.getTeamTurn()) {
+                        seen[expected.ordinal()]++;
+                    }
+                }
+                buffer.clear();
+                game.legalMoves(game.getTeamTurn(), buffer);
+                if (buffer.isEmpty()) {
+                    break;
+                }
+                game.makeMove(buffer.get(random.nextInt(buffer.size())));
+            }
+        }
+
+        for (ChessGame.GameStatus status : ChessGame.GameStatus.values()) {
+            Assertions.assertTrue(seen[status.ordinal()] > 0, "No " + status + " position was reached");
+        }
+    }
+
+    @Test
+    @DisplayName("Missing King In Progress")
+    public void missingKing() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.evaluateStatus(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.evaluateStatus(ChessGame.TeamColor.BLACK));
+    }
+}
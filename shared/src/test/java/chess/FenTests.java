@@ -0,0 +1,77 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("Start Position Matches Reset Board")
+    public void startPosition() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+        Assertions.assertEquals(board, game.getBoard());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        Assertions.assertEquals(0, game.getPly());
+        Assertions.assertEquals(Fen.START_POSITION, Fen.toFen(new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("Parse Overwrites Every Square")
+    public void parseIntoUsedBoard() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        ChessGame.TeamColor turn = Fen.parseBoard("4k3/8/8/8/8/8/8/4K2R b - - 3 40", board);
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, turn);
+        Assertions.assertNull(board.getPiece(new ChessPosition(2, 1)));
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                board.getPiece(new ChessPosition(1, 8)));
+        Assertions.assertEquals(3, Long.bitCount(board.getBitBoard().occupied()));
+    }
+
+    @Test
+    @DisplayName("Round Trip Keeps Position And Ply")
+    public void roundTrip() {
+        String fen = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 0 3";
+        ChessGame game = Fen.parse(fen);
+        Assertions.assertEquals(4, game.getPly());
+        Assertions.assertEquals(fen, Fen.toFen(game));
+    }
+
+    @Test
+    @DisplayName("Optional Fields And Castling Ignored")
+    public void optionalFields() {
+        ChessGame shortForm = Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w");
+        ChessGame fullForm = Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        Assertions.assertEquals(shortForm, fullForm);
+        Assertions.assertEquals(0, shortForm.getPly());
+    }
+
+    @Test
+    @DisplayName("Invalid FEN Rejected")
+    public void invalid() {
+        String[] invalid = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w - - 0 1",
+                "rnbqkbnr/pppppppp/44/8/8/8/PPPPPPPP/RNBQKBNRR w - - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x - - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1x",
+        };
+        for (String fen : invalid) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen), fen);
+        }
+    }
+
+    @Test
+    @DisplayName("Perft From FEN Position")
+    public void perftFromFen() {
+        // a position without castling or en passant rights, so the published counts apply
+        ChessGame game = Fen.parse("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        Assertions.assertEquals(14, Perft.perft(game, 1));
+        Assertions.assertEquals(191, Perft.perft(game, 2));
+    }
+}
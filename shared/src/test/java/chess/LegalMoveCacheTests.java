@@ -0,0 +1,151 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class LegalMoveCacheTests {
+    // keys that differ only above the low four bits land in the same segment
+    private static final long SAME_SEGMENT = 16;
+    // the cache only compares placements, so an empty board stands in for any position
+    private static final BitBoard EMPTY = new BitBoard();
+
+    /* kings on e1 and e8 and a white pawn on e2, white to move */
+    private static ChessGame pawnEnding() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(2, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        return game;
+    }
+
+    @Test
+    @DisplayName("Hits And Misses Counted")
+    public void hitsAndMisses() {
+        LegalMoveCache cache = new LegalMoveCache(64);
+        Assertions.assertNull(cache.get(7L, EMPTY));
+        cache.put(7L, EMPTY, new int[]{1, 2, 3});
+        Assertions.assertArrayEquals(new int[]{1, 2, 3}, cache.get(7L, EMPTY));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(0.5, cache.getHitRate());
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertNull(cache.get(7L, EMPTY));
+    }
+
+    @Test
+    @DisplayName("Least Recently Used Evicted Per Segment")
+    public void lruEviction() {
+        // 32 positions over 16 segments leaves room for two per segment
+        LegalMoveCache cache = new LegalMoveCache(32);
+        Assertions.assertEquals(32, cache.capacity());
+        cache.put(0L, EMPTY, new int[]{0});
+        cache.put(SAME_SEGMENT, EMPTY, new int[]{1});
+        cache.put(1L, EMPTY, new int[]{2});
+        // touching key 0 makes SAME_SEGMENT the eldest in segment 0
+        Assertions.assertNotNull(cache.get(0L, EMPTY));
+        cache.put(2 * SAME_SEGMENT, EMPTY, new int[]{3});
+
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertNull(cache.get(SAME_SEGMENT, EMPTY));
+        Assertions.assertNotNull(cache.get(0L, EMPTY));
+        Assertions.assertNotNull(cache.get(2 * SAME_SEGMENT, EMPTY));
+        // the full segment didn't push anything out of its neighbour
+        Assertions.assertNotNull(cache.get(1L, EMPTY));
+        Assertions.assertEquals(3, cache.size());
+    }
+
+    @Test
+    @DisplayName("Key Collision Treated As Miss")
+    public void keyCollision() {
+        LegalMoveCache cache = new LegalMoveCache(64);
+        BitBoard other = new BitBoard();
+        other.set(BitBoard.square(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        cache.put(7L, EMPTY, new int[]{1, 2, 3});
+
+        // same key, different pieces: the stored moves belong to another position
+        Assertions.assertNull(cache.get(7L, other));
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertArrayEquals(new int[]{1, 2, 3}, cache.get(7L, new BitBoard()));
+    }
+
+    @Test
+    @DisplayName("Capacity Rounded To Segments")
+    public void capacityRounding() {
+        Assertions.assertEquals(16, new LegalMoveCache(1).capacity());
+        Assertions.assertEquals(96, new LegalMoveCache(100).capacity());
+    }
+
+    @Test
+    @DisplayName("Size Read From System Property")
+    public void sizeProperty() {
+        String previous = System.getProperty(LegalMoveCache.SIZE_PROPERTY);
+        try {
+            System.clearProperty(LegalMoveCache.SIZE_PROPERTY);
+            Assertions.assertEquals(LegalMoveCache.DEFAULT_CAPACITY, LegalMoveCache.configuredCapacity());
+            System.setProperty(LegalMoveCache.SIZE_PROPERTY, "1024");
+            Assertions.assertEquals(1024, LegalMoveCache.configuredCapacity());
+            Assertions.assertEquals(1024, new LegalMoveCache(LegalMoveCache.configuredCapacity()).capacity());
+        } finally {
+            if (previous == null) {
+                System.clearProperty(LegalMoveCache.SIZE_PROPERTY);
+            } else {
+                System.setProperty(LegalMoveCache.SIZE_PROPERTY, previous);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Repeated Position Served From Cache")
+    public void gameUsesCache() {
+        LegalMoveCache cache = ChessGame.getLegalMoveCache();
+        ChessGame game = pawnEnding();
+        MoveBuffer first = new MoveBuffer();
+        game.legalMoves(ChessGame.TeamColor.WHITE, first);
+
+        long hits = cache.getHits();
+        MoveBuffer second = new MoveBuffer();
+        pawnEnding().legalMoves(ChessGame.TeamColor.WHITE, second);
+        Assertions.assertTrue(cache.getHits() > hits, "Second lookup of the same position missed");
+        Assertions.assertArrayEquals(first.toArray(0), second.toArray(0));
+    }
+
+    @Test
+    @DisplayName("Same Board Keyed By Side")
+    public void keyedBySide() {
+        ChessGame game = pawnEnding();
+        MoveBuffer white = new MoveBuffer();
+        game.legalMoves(ChessGame.TeamColor.WHITE, white);
+        MoveBuffer black = new MoveBuffer();
+        game.legalMoves(ChessGame.TeamColor.BLACK, black);
+
+        // white: two pawn pushes and four king steps; black: five king steps
+        Assertions.assertEquals(6, white.size());
+        Assertions.assertEquals(5, black.size());
+        int blackKing = BitBoard.square(8, 5);
+        for (int i = 0; i < black.size(); i++) {
+            Assertions.assertEquals(blackKing, PackedMove.from(black.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Piece Moves Generated Alone On Miss")
+    public void validMovesOnMiss() {
+        LegalMoveCache cache = ChessGame.getLegalMoveCache();
+        cache.clear();
+        ChessGame game = pawnEnding();
+        Assertions.assertEquals(2, game.validMoves(new ChessPosition(2, 5)).size());
+        // a single piece's moves are not the team's, so nothing is stored
+        Assertions.assertEquals(0, cache.size());
+
+        MoveBuffer team = new MoveBuffer();
+        game.legalMoves(ChessGame.TeamColor.WHITE, team);
+        long hits = cache.getHits();
+        Assertions.assertEquals(4, game.validMoves(new ChessPosition(1, 5)).size());
+        Assertions.assertEquals(hits + 1, cache.getHits());
+    }
+}
@@ -0,0 +1,108 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class MakeUnmakeTests {
+    private static final int GAMES = 100;
+    private static final int MAX_PLY = 300;
+
+    private static ChessPiece[] snapshot(ChessGame game) {
+        ChessPiece[] pieces = new ChessPiece[64];
+        for (int square = 0; square < 64; square++) {
+            pieces[square] = game.getBoard().getPiece(BitBoard.position(square));
+        }
+        return pieces;
+    }
+
+    private static void assertRestored(ChessPiece[] pieces, ChessGame.TeamColor turn, ChessGame game, int move) {
+        Assertions.assertArrayEquals(pieces, snapshot(game), "Unmake did not restore the board after "
+                + PackedMove.toChessMove(move));
+        Assertions.assertEquals(turn, game.getTeamTurn());
+        BitBoard bits = game.getBoard().getBitBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = pieces[square];
+            int index = piece == null ? -1 : BitBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            Assertions.assertEquals(index, bits.pieceIndexAt(square), "Bitboard out of step on square " + square);
+        }
+    }
+
+    @Test
+    @DisplayName("Unmake Restores Every Legal Move")
+    public void randomGames() {
+        SplittableRandom random = new SplittableRandom(4);
+        MoveBuffer buffer = new MoveBuffer();
+        int captures = 0;
+        int promotions = 0;
+
+        for (int g = 0; g < GAMES; g++) {
+            ChessGame game = new ChessGame();
+            int played = 0;
+            while (played < MAX_PLY) {
+                buffer.clear();
+                game.legalMoves(game.getTeamTurn(), buffer);
+                if (buffer.isEmpty()) {
+                    break;
+                }
+                ChessPiece[] before = snapshot(game);
+                ChessGame.TeamColor turn = game.getTeamTurn();
+                for (int i = 0; i < buffer.size(); i++) {
+                    int move = buffer.get(i);
+                    game.makeMove(move);
+                    Assertions.assertEquals(ChessGame.opposite(turn), game.getTeamTurn());
+                    game.unmakeMove();
+                    assertRestored(before, turn, game, move);
+                }
+
+                int move = buffer.get(random.nextInt(buffer.size()));
+                if (before[PackedMove.to(move)] != null) {
+                    captures++;
+                }
+                if (PackedMove.promotion(move) != null) {
+                    promotions++;
+                }
+                game.makeMove(move);
+                played++;
+            }
+            for (int ply = 0; ply < played; ply++) {
+                game.unmakeMove();
+            }
+            Assertions.assertEquals(new ChessGame(), game, "Unwinding game " + g + " did not reach the start");
+        }
+
+        Assertions.assertTrue(captures > 0, "No captures were played");
+        Assertions.assertTrue(promotions > 0, "No promotions were played");
+    }
+
+    @Test
+    @DisplayName("Promotion Unmade Back To Pawn")
+    public void promotionUnmade() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(7, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        ChessPiece[] before = snapshot(game);
+
+        int move = PackedMove.of(BitBoard.square(7, 7), BitBoard.square(8, 8), ChessPiece.PieceType.KNIGHT,
+                PackedMove.FLAG_CAPTURE);
+        game.makeMove(move);
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                game.getBoard().getPiece(new ChessPosition(8, 8)));
+        game.unmakeMove();
+        assertRestored(before, ChessGame.TeamColor.WHITE, game, move);
+    }
+
+    @Test
+    @DisplayName("Unmake Without Move Rejected")
+    public void unmakeEmpty() {
+        ChessGame game = new ChessGame();
+        Assertions.assertThrows(IllegalStateException.class, game::unmakeMove);
+        Assertions.assertEquals(new ChessGame(), game);
+    }
+}
@@ -0,0 +1,61 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class MoveHistoryTests {
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    @Test
+    @DisplayName("Ply Follows Make And Unmake")
+    public void plyCounting() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        Assertions.assertEquals(2, game.getPly());
+        game.unmakeMove();
+        Assertions.assertEquals(1, game.getPly());
+    }
+
+    @Test
+    @DisplayName("Moves Since Earlier Ply")
+    public void movesSince() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(1, 7, 3, 6));
+
+        int[] moves = game.movesSince(1);
+        Assertions.assertEquals(2, moves.length);
+        Assertions.assertEquals(move(7, 5, 5, 5), PackedMove.toChessMove(moves[0]));
+        Assertions.assertEquals(move(1, 7, 3, 6), PackedMove.toChessMove(moves[1]));
+        Assertions.assertEquals(0, game.movesSince(3).length);
+        Assertions.assertNull(game.movesSince(4));
+
+        // replaying the history on a fresh game reaches the same position
+        ChessGame replayed = new ChessGame();
+        for (int packed : game.movesSince(0)) {
+            replayed.makeMove(packed);
+        }
+        Assertions.assertEquals(game, replayed);
+    }
+
+    @Test
+    @DisplayName("History Not Known Before Load")
+    public void historyAfterSetBoard() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.setBoard(new ChessBoard(game.getBoard()));
+        Assertions.assertNull(game.movesSince(0));
+        Assertions.assertEquals(0, game.movesSince(1).length);
+
+        ChessGame copy = new ChessGame(game);
+        copy.makeMove(move(7, 5, 5, 5));
+        Assertions.assertEquals(1, copy.movesSince(1).length);
+        Assertions.assertEquals(1, game.getPly());
+    }
+}
@@ -0,0 +1,79 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+public class PackedMoveTests {
+    private static final ChessPiece.PieceType[] PROMOTIONS = {null, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+
+    @Test
+    @DisplayName("Fields Round Trip")
+    public void roundTrip() {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    int move = PackedMove.of(from, to, promotion, PackedMove.FLAG_CAPTURE);
+                    Assertions.assertEquals(from, PackedMove.from(move));
+                    Assertions.assertEquals(to, PackedMove.to(move));
+                    Assertions.assertEquals(promotion, PackedMove.promotion(move));
+                    Assertions.assertTrue(PackedMove.hasFlag(move, PackedMove.FLAG_CAPTURE));
+                    Assertions.assertFalse(PackedMove.hasFlag(move, PackedMove.FLAG_DOUBLE_PUSH));
+
+                    ChessMove chessMove = new ChessMove(BitBoard.position(from), BitBoard.position(to), promotion);
+                    Assertions.assertEquals(chessMove, PackedMove.toChessMove(move));
+                    Assertions.assertEquals(PackedMove.of(from, to, promotion, 0), PackedMove.fromChessMove(chessMove));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Buffer Grows Past Capacity")
+    public void bufferGrowth() {
+        MoveBuffer buffer = new MoveBuffer(2);
+        List<ChessMove> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int move = PackedMove.of(i % 64, (i * 7) % 64, null, 0);
+            buffer.add(move);
+            expected.add(PackedMove.toChessMove(move));
+        }
+        Assertions.assertEquals(100, buffer.size());
+        Assertions.assertEquals(expected, new ArrayList<>(buffer.toChessMoves()));
+
+        buffer.truncate(10);
+        Assertions.assertEquals(10, buffer.size());
+        Assertions.assertEquals(expected.subList(0, 10), new ArrayList<>(buffer.toChessMoves()));
+        buffer.clear();
+        Assertions.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Opening Moves Generated With Flags")
+    public void openingMoves() {
+        ChessGame game = new ChessGame();
+        MoveBuffer buffer = new MoveBuffer();
+        game.legalMoves(ChessGame.TeamColor.WHITE, buffer);
+        Assertions.assertEquals(20, buffer.size());
+
+        int doublePushes = 0;
+        for (int i = 0; i < buffer.size(); i++) {
+            int move = buffer.get(i);
+            Assertions.assertFalse(PackedMove.hasFlag(move, PackedMove.FLAG_CAPTURE));
+            if (PackedMove.hasFlag(move, PackedMove.FLAG_DOUBLE_PUSH)) {
+                doublePushes++;
+                Assertions.assertEquals(16, PackedMove.to(move) - PackedMove.from(move));
+            }
+        }
+        Assertions.assertEquals(8, doublePushes);
+
+        Collection<ChessMove> fromTeam = game.findValidMovesForTeam(ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(new HashSet<>(fromTeam), new HashSet<>(buffer.toChessMoves()));
+    }
+}
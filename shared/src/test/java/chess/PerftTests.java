@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class PerftTests {
+    // published start position counts; depth 5 excludes the 258 en passant captures this engine doesn't model
+    private static final long[] START_POSITION_NODES = {1, 20, 400, 8902, 197281, 4865351};
+
+    @Test
+    @DisplayName("Start Position Node Counts")
+    public void startPositionCounts() {
+        ChessGame game = new ChessGame();
+        for (int depth = 0; depth < START_POSITION_NODES.length; depth++) {
+            Assertions.assertEquals(START_POSITION_NODES[depth], Perft.perft(game, depth),
+                    "Wrong node count at depth " + depth);
+        }
+        Assertions.assertEquals(new ChessGame(), game, "Perft did not restore the game");
+    }
+
+    @Test
+    @DisplayName("Parallel Matches Sequential")
+    public void parallelMatchesSequential() {
+        ChessGame game = new ChessGame();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Assertions.assertEquals(Perft.perft(game, 4), Perft.perft(game, 4, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Divide Sums To Perft")
+    public void divideSumsToPerft() {
+        ChessGame game = new ChessGame();
+        Map<ChessMove, Long> divide = Perft.divide(game, 3);
+        Assertions.assertEquals(20, divide.size());
+        Assertions.assertEquals(8902, divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    @DisplayName("Promotions Counted Per Piece")
+    public void promotionCounts() {
+        // white pawn one step from promotion, kings far apart: 4 promotions + 5 king moves
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(7, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(9, Perft.perft(game, 1));
+    }
+}
@@ -0,0 +1,74 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PromotionTests {
+
+    /* white pawn on c7 and rook on a2, kings on e1 and h8, white to move */
+    private static ChessGame pawnOnSeventh() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(7, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(2, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        return game;
+    }
+
+    private static void assertRejected(ChessGame game, ChessMove move) {
+        ChessBoard before = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            before.addPiece(BitBoard.position(square), game.getBoard().getPiece(BitBoard.position(square)));
+        }
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(move));
+        Assertions.assertEquals(before, game.getBoard(), "Rejected move changed the board");
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Promotion Accepted On Last Rank")
+    public void promotionAccepted() throws InvalidMoveException {
+        ChessGame game = pawnOnSeventh();
+        game.makeMove(new ChessMove(new ChessPosition(7, 3), new ChessPosition(8, 3), ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                game.getBoard().getPiece(new ChessPosition(8, 3)));
+    }
+
+    @Test
+    @DisplayName("Pawn On Last Rank Must Promote")
+    public void missingPromotion() {
+        assertRejected(pawnOnSeventh(), new ChessMove(new ChessPosition(7, 3), new ChessPosition(8, 3), null));
+    }
+
+    @Test
+    @DisplayName("Promotion Rejected Off Last Rank")
+    public void promotionOffLastRank() {
+        ChessGame game = new ChessGame();
+        assertRejected(game, new ChessMove(new ChessPosition(2, 3), new ChessPosition(4, 3),
+                ChessPiece.PieceType.QUEEN));
+    }
+
+    @Test
+    @DisplayName("Promotion Rejected For Other Pieces")
+    public void promotionByRook() {
+        // the rook reaches row 8 as well, but only pawns promote
+        ChessGame game = pawnOnSeventh();
+        assertRejected(game, new ChessMove(new ChessPosition(2, 1), new ChessPosition(8, 1),
+                ChessPiece.PieceType.QUEEN));
+        assertRejected(game, new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1),
+                ChessPiece.PieceType.QUEEN));
+    }
+
+    @Test
+    @DisplayName("Promotion To King Or Pawn Rejected")
+    public void promotionToKingOrPawn() {
+        ChessGame game = pawnOnSeventh();
+        assertRejected(game, new ChessMove(new ChessPosition(7, 3), new ChessPosition(8, 3),
+                ChessPiece.PieceType.KING));
+        assertRejected(game, new ChessMove(new ChessPosition(7, 3), new ChessPosition(8, 3),
+                ChessPiece.PieceType.PAWN));
+    }
+}
@@ -0,0 +1,113 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class ZobristTests {
+    private static final int GAMES = 200;
+    private static final int MAX_PLY = 300;
+
+    /* the key recomputed from every square, independent of the incremental updates */
+    private static long keyFromScratch(ChessGame game) {
+        long key = Zobrist.turnKey(game.getTeamTurn());
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                if (piece != null) {
+                    key ^= Zobrist.pieceKey(BitBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType()),
+                            BitBoard.square(row, col));
+                }
+            }
+        }
+        return key;
+    }
+
+    @Test
+    @DisplayName("Incremental Key Matches Recomputed Key")
+    public void randomGames() {
+        SplittableRandom random = new SplittableRandom(240);
+        MoveBuffer buffer = new MoveBuffer();
+        int captures = 0;
+        int promotions = 0;
+
+        for (int g = 0; g < GAMES; g++) {
+            ChessGame game = new ChessGame();
+            long[] keys = new long[MAX_PLY + 1];
+            keys[0] = game.getZobristKey();
+            Assertions.assertEquals(keyFromScratch(game), keys[0]);
+
+            int played = 0;
+            while (played < MAX_PLY) {
+                buffer.clear();
+                game.legalMoves(game.getTeamTurn(), buffer);
+                if (buffer.size() == 0) {
+                    break;
+                }
+                int move = buffer.get(random.nextInt(buffer.size()));
+                if (game.getBoard().getPiece(BitBoard.position(PackedMove.to(move))) != null) {
+                    captures++;
+                }
+                if (PackedMove.promotion(move) != null) {
+                    promotions++;
+                }
+                game.makeMove(move);
+                played++;
+                keys[played] = game.getZobristKey();
+                Assertions.assertEquals(keyFromScratch(game), keys[played],
+                        "Key drifted after " + PackedMove.toChessMove(move) + " in game " + g);
+            }
+
+            for (int ply = played - 1; ply >= 0; ply--) {
+                game.unmakeMove();
+                Assertions.assertEquals(keys[ply], game.getZobristKey(), "Unmake did not restore the key in game " + g);
+                Assertions.assertEquals(keyFromScratch(game), game.getZobristKey());
+            }
+            Assertions.assertEquals(new ChessGame(), game);
+        }
+
+        Assertions.assertTrue(captures > 0, "No captures were played");
+        Assertions.assertTrue(promotions > 0, "No promotions were played");
+    }
+
+    @Test
+    @DisplayName("Side To Move Changes Key")
+    public void sideToMove() {
+        ChessGame white = new ChessGame();
+        ChessGame black = new ChessGame();
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(white.getBoard().getZobristKey(), black.getBoard().getZobristKey());
+        Assertions.assertNotEquals(white.getZobristKey(), black.getZobristKey());
+        Assertions.assertNotEquals(white, black);
+    }
+
+    @Test
+    @DisplayName("Same Placement Shares Key")
+    public void samePlacement() {
+        ChessPiece[] pieces = {
+                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK)};
+        ChessPosition[] positions = {new ChessPosition(1, 5), new ChessPosition(7, 2),
+                new ChessPosition(8, 5), new ChessPosition(8, 8)};
+
+        // the same pieces placed in opposite orders, one board with a detour through another square
+        ChessBoard forward = new ChessBoard();
+        ChessBoard backward = new ChessBoard();
+        for (int i = 0; i < pieces.length; i++) {
+            forward.addPiece(positions[i], pieces[i]);
+            backward.addPiece(positions[pieces.length - 1 - i], pieces[pieces.length - 1 - i]);
+        }
+        backward.addPiece(new ChessPosition(4, 4), pieces[1]);
+        backward.addPiece(new ChessPosition(4, 4), null);
+        Assertions.assertEquals(forward.getZobristKey(), backward.getZobristKey());
+        Assertions.assertEquals(forward, backward);
+
+        ChessBoard reset = new ChessBoard();
+        reset.resetBoard();
+        Assertions.assertEquals(new ChessGame().getBoard().getZobristKey(), reset.getZobristKey());
+    }
+}